@@ -1,11 +1,10 @@
 package com.bobocode;
 
-import com.bobocode.util.FileReader;
+import com.bobocode.util.migration.SchemaLedger;
+import com.bobocode.util.script.ParallelDdlRunner;
 
 import javax.sql.DataSource;
-import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 /**
  * {@link WallStreetDbInitializer} is an API that has only one method. It allows to create a database tables to store
@@ -20,17 +19,26 @@ public class WallStreetDbInitializer {
     }
 
     /**
-     * Reads the SQL script form the file and executes it
+     * Reads the SQL script form the file and executes it statement by statement, without loading the whole file.
+     * The script is skipped if the schema ledger shows that the same version of it is already applied.
      *
      * @throws SQLException
      */
     public void init() throws SQLException {
-        String createTablesSql = FileReader.readWholeFileFromResources(TABLE_INITIALIZATION_SQL_FILE);
+        new SchemaLedger(dataSource).applyFromResources(TABLE_INITIALIZATION_SQL_FILE);
+    }
 
-        try (Connection connection = dataSource.getConnection()) {
-            Statement statement = connection.createStatement();
-            statement.execute(createTablesSql);
-        }
+    /**
+     * Same as {@link #init()}, but independent statements are executed concurrently on separate connections. A table
+     * is created after the tables it references, and indexes are created when all tables are ready. Use a pooled
+     * data source, so the connections are reused.
+     *
+     * @param parallelism max number of statements executed at the same time
+     * @throws SQLException
+     */
+    public void initConcurrently(int parallelism) throws SQLException {
+        new SchemaLedger(dataSource).applyFromResources(TABLE_INITIALIZATION_SQL_FILE,
+                (connection, script) -> new ParallelDdlRunner(dataSource, parallelism).run(script));
     }
 
 }
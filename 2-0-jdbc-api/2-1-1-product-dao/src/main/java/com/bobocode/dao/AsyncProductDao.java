@@ -0,0 +1,180 @@
+package com.bobocode.dao;
+
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
+import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+import com.bobocode.util.pool.PooledDataSource;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncProductDao} runs {@link ProductDao} operations on a dedicated executor and returns
+ * {@link CompletableFuture}s, so request threads don't block on the database and can run several lookups
+ * concurrently.
+ * <p>
+ * The executor has a fixed number of threads, that should match the connection pool size, so that threads never wait
+ * for connections. Operations that cannot start right away wait in a bounded queue. When the queue is full, an
+ * operation is rejected right away with a future failed with {@link RejectedExecutionException}, which gives callers
+ * backpressure instead of an ever-growing backlog.
+ * <p>
+ * Each operation has a timeout. A timed out future fails with {@link java.util.concurrent.TimeoutException}. If the
+ * operation is still in the queue, it's cancelled and never reaches the database. A running JDBC call cannot be
+ * interrupted, so it completes in the background.
+ * <p>
+ * {@link ProductDao#streamAll(int)} is not exposed, since a stream holds a connection until the caller closes it.
+ */
+public class AsyncProductDao implements AutoCloseable {
+    private final ProductDao delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration callTimeout;
+
+    /**
+     * @param delegate      DAO that executes operations
+     * @param threads       number of executor threads
+     * @param queueCapacity max number of operations waiting for a thread
+     * @param callTimeout   max time from submitting an operation till its completion
+     */
+    public AsyncProductDao(ProductDao delegate, int threads, int queueCapacity, Duration callTimeout) {
+        this(delegate, createExecutor(threads, queueCapacity), callTimeout);
+    }
+
+    private AsyncProductDao(ProductDao delegate, ThreadPoolExecutor executor, Duration callTimeout) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.callTimeout = callTimeout;
+    }
+
+    /**
+     * Creates a facade with as many threads as the pool has connections
+     */
+    public static AsyncProductDao forPool(ProductDao delegate, PooledDataSource dataSource, int queueCapacity,
+                                          Duration callTimeout) {
+        return new AsyncProductDao(delegate, dataSource.getConfig().getMaxSize(), queueCapacity, callTimeout);
+    }
+
+    private static ThreadPoolExecutor createExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "async-product-dao-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Returns a facade that shares the executor of this one, but has another timeout
+     */
+    public AsyncProductDao withTimeout(Duration timeout) {
+        return new AsyncProductDao(delegate, executor, timeout);
+    }
+
+    public CompletableFuture<Product> save(Product product) {
+        return submit(() -> {
+            delegate.save(product);
+            return product;
+        });
+    }
+
+    public CompletableFuture<List<Long>> saveAll(Collection<Product> products) {
+        return submit(() -> delegate.saveAll(products));
+    }
+
+    public CompletableFuture<List<Product>> findAll() {
+        return submit(delegate::findAll);
+    }
+
+    public CompletableFuture<Product> findOne(Long id) {
+        return submit(() -> delegate.findOne(id));
+    }
+
+    public CompletableFuture<Page<Product>> findPage(Long afterId, int limit) {
+        return submit(() -> delegate.findPage(afterId, limit));
+    }
+
+    public CompletableFuture<Page<Product>> findPageByExpirationDate(String pageToken, int limit) {
+        return submit(() -> delegate.findPageByExpirationDate(pageToken, limit));
+    }
+
+    public CompletableFuture<MultiGetResult<Product>> findAllByIds(Collection<Long> ids) {
+        return submit(() -> delegate.findAllByIds(ids));
+    }
+
+    public CompletableFuture<UpsertResult> upsertAll(Collection<Product> products) {
+        return submit(() -> delegate.upsertAll(products));
+    }
+
+    public CompletableFuture<Void> update(Product product) {
+        return submit(() -> {
+            delegate.update(product);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> update(Product original, Product product) {
+        return submit(() -> {
+            delegate.update(original, product);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> remove(Product product) {
+        return submit(() -> {
+            delegate.remove(product);
+            return null;
+        });
+    }
+
+    /**
+     * @return number of operations waiting for a thread
+     */
+    public int getQueuedOperations() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting operations. Already submitted operations are completed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(operation.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((value, error) -> {
+                    if (error != null && task.cancel(false)) {
+                        executor.remove((Runnable) task);
+                    }
+                });
+        return result;
+    }
+}
@@ -0,0 +1,284 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.CacheStats;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
+import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link CachingProductDao} is a {@link ProductDao} decorator that caches {@link #findOne(Long)} results, including
+ * ids that don't exist. Entries expire after {@code ttl} ({@code negativeTtl} for missing ids), and the cache keeps
+ * at most {@code maxSize} entries, evicting with the CLOCK algorithm (an approximation of LRU).
+ * <p>
+ * A cache hit is a {@link ConcurrentHashMap} lookup plus a volatile flag write, so hits never take a lock. The lock is
+ * taken only to add an entry, evict and invalidate. Writes through this DAO ({@code save}, {@code update},
+ * {@code remove} etc.) invalidate affected ids. A load that runs concurrently with an invalidation is not cached, so a
+ * stale product cannot get back to the cache. Writes that bypass this DAO are seen after the entries expire.
+ */
+public class CachingProductDao implements ProductDao {
+    private final ProductDao delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final Map<Long, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final Queue<Long> clock = new ArrayDeque<>();
+    private final Set<Long> clockIds = new HashSet<>();
+    private final ReentrantLock clockLock = new ReentrantLock();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate    DAO that loads products
+     * @param maxSize     max number of cached ids
+     * @param ttl         time to live of a cached product
+     * @param negativeTtl time to live of a cached missing id
+     */
+    public CachingProductDao(ProductDao delegate, int maxSize, Duration ttl, Duration negativeTtl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size should be positive");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+    }
+
+    /**
+     * Missing ids are loaded with {@link ProductDao#findAllByIds(Collection)}, that tells a missing product apart
+     * from a database error.
+     */
+    @Override
+    public Product findOne(Long id) {
+        CacheEntry entry = entries.get(id);
+        if (entry != null && !entry.isExpired(System.nanoTime())) {
+            hits.increment();
+            entry.markReferenced();
+            return copyOrThrow(entry.product, id);
+        }
+        misses.increment();
+        long invalidationsBeforeLoad = invalidations.get();
+        Product product = delegate.findAllByIds(List.of(id)).getFound().get(id);
+        long ttl = product != null ? ttlNanos : negativeTtlNanos;
+        cache(id, new CacheEntry(product, System.nanoTime() + ttl), invalidationsBeforeLoad);
+        return copyOrThrow(product, id);
+    }
+
+    /**
+     * Cached products are shared, so callers get copies that they are free to change
+     */
+    private static Product copyOrThrow(Product product, Long id) {
+        if (product == null) {
+            throw new DaoOperationException(String.format("Product with id = %d does not exist", id));
+        }
+        return new Product(product.getId(), product.getName(), product.getProducer(), product.getPrice(),
+                product.getExpirationDate(), product.getCreationTime(), product.getVersion());
+    }
+
+    /**
+     * The invalidation counter is checked and bumped under the same lock, so a load that started before an
+     * invalidation is never put after it
+     */
+    private void cache(Long id, CacheEntry entry, long invalidationsBeforeLoad) {
+        clockLock.lock();
+        try {
+            if (invalidations.get() != invalidationsBeforeLoad) {
+                return;
+            }
+            if (entries.put(id, entry) == null) {
+                addToClock(id);
+                evictIfFull();
+            }
+        } finally {
+            clockLock.unlock();
+        }
+    }
+
+    /**
+     * An id stays in the clock after its entry is invalidated, so it's added again only if it's not there. The ids
+     * whose entries are gone are dropped once the clock gets twice as long as the cache, which keeps it bounded even
+     * when the cache never fills up.
+     */
+    private void addToClock(Long id) {
+        if (clockIds.add(id)) {
+            clock.add(id);
+        }
+        if (clock.size() > 2 * maxSize) {
+            clock.removeIf(clockId -> !entries.containsKey(clockId) && clockIds.remove(clockId));
+        }
+    }
+
+    /**
+     * The clock hand gives referenced entries a second chance, and evicts the first entry that wasn't used since the
+     * hand passed it last time. Expired entries are evicted right away.
+     */
+    private void evictIfFull() {
+        long now = System.nanoTime();
+        while (entries.size() > maxSize) {
+            Long id = clock.poll();
+            CacheEntry entry = entries.get(id);
+            if (entry != null && entry.referenced && !entry.isExpired(now)) {
+                entry.referenced = false;
+                clock.add(id);
+                continue;
+            }
+            clockIds.remove(id);
+            if (entry != null) {
+                entries.remove(id);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes an id from the cache. A {@code null} id is never cached, so it's ignored: a failed write of a product
+     * without id keeps the error of the delegate.
+     */
+    public void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        clockLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            entries.remove(id);
+        } finally {
+            clockLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        clockLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            entries.clear();
+            clock.clear();
+            clockIds.clear();
+        } finally {
+            clockLock.unlock();
+        }
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    @Override
+    public void save(Product product) {
+        delegate.save(product);
+        invalidate(product.getId());
+    }
+
+    @Override
+    public List<Long> saveAll(Collection<Product> products) {
+        try {
+            return delegate.saveAll(products);
+        } finally {
+            products.forEach(product -> invalidate(product.getId()));
+        }
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Product> streamAll(int fetchSize) {
+        return delegate.streamAll(fetchSize);
+    }
+
+    @Override
+    public Page<Product> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Product> findPageByExpirationDate(String pageToken, int limit) {
+        return delegate.findPageByExpirationDate(pageToken, limit);
+    }
+
+    @Override
+    public MultiGetResult<Product> findAllByIds(Collection<Long> ids) {
+        return delegate.findAllByIds(ids);
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Product> products) {
+        try {
+            return delegate.upsertAll(products);
+        } finally {
+            products.forEach(product -> invalidate(product.getId()));
+        }
+    }
+
+    @Override
+    public void update(Product product) {
+        try {
+            delegate.update(product);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void update(Product original, Product product) {
+        try {
+            delegate.update(original, product);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void remove(Product product) {
+        try {
+            delegate.remove(product);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    private static class CacheEntry {
+        private final Product product;
+        private final long expiresAtNanos;
+        private volatile boolean referenced;
+
+        CacheEntry(Product product, long expiresAtNanos) {
+            this.product = product;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        /**
+         * Skips the write if the flag is already set, so that hot entries don't bounce their cache line between
+         * CPU cores
+         */
+        void markReferenced() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+}
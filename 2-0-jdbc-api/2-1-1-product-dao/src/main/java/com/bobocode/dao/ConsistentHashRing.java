@@ -0,0 +1,46 @@
+package com.bobocode.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * {@link ConsistentHashRing} maps keys to nodes so that adding or removing a node moves only the keys of that node.
+ * Every node is placed on the ring at {@code virtualNodes} points, which evens out the share of keys per node.
+ */
+class ConsistentHashRing<T> {
+    private final NavigableMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param nodes        ring nodes, a node is identified by its position in the list
+     * @param virtualNodes number of ring points per node
+     */
+    ConsistentHashRing(List<T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Ring should have at least one node");
+        }
+        for (int node = 0; node < nodes.size(); node++) {
+            long nodeHash = mix(~(long) node);
+            for (int point = 0; point < virtualNodes; point++) {
+                ring.put(mix(nodeHash + point), nodes.get(node));
+            }
+        }
+    }
+
+    T nodeFor(long key) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(mix(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * SplitMix64 finalizer, it spreads sequential ids evenly over the ring. Ring points are hashed twice, so that they
+     * never coincide with hashes of small keys.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,365 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.BatchSaveException.FailedRow;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
+import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * {@link GroupCommitProductDao} coalesces concurrent {@code save} and {@code update} calls into shared transactions,
+ * so that many callers pay for one commit instead of one commit each. Calls are queued, and a writer thread takes
+ * them in groups: a group is closed when it has {@code maxGroupSize} writes or {@code maxDelay} after its first
+ * write. The group is written in one transaction, consecutive saves in one JDBC batch, and committed once.
+ * <p>
+ * Every call keeps its own result: a save or an update that fails (e.g. with
+ * {@link com.bobocode.exception.OptimisticLockException}) is rolled back to its savepoint and fails only its caller,
+ * the other writes of the group are committed. If the commit itself fails, every call of the group fails. Blocking
+ * {@link #save(Product)} and {@link #update(Product)} throw the same exceptions as {@link ProductDaoImpl}, while
+ * {@link #saveAsync(Product)} and {@link #updateAsync(Product)} return futures. When the queue is full, a call fails
+ * with {@link RejectedExecutionException}.
+ * <p>
+ * Reads and other writes are not queued, they go to {@link ProductDaoImpl} directly.
+ */
+public class GroupCommitProductDao implements ProductDao, AutoCloseable {
+    public static final int DEFAULT_MAX_GROUP_SIZE = 500;
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(5);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final DataSource dataSource;
+    private final ProductDaoImpl delegate;
+    private final int maxGroupSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writerThread;
+    private final LongAdder committedGroups = new LongAdder();
+    private final LongAdder committedWrites = new LongAdder();
+    private volatile boolean closed;
+    private volatile boolean writerStopped;
+
+    public GroupCommitProductDao(DataSource dataSource) {
+        this(dataSource, DEFAULT_MAX_GROUP_SIZE, DEFAULT_MAX_DELAY, DEFAULT_MAX_GROUP_SIZE * 10);
+    }
+
+    /**
+     * @param dataSource    a data source of the products database
+     * @param maxGroupSize  max number of writes committed in one transaction
+     * @param maxDelay      max time that the first write of a group waits for other writes
+     * @param queueCapacity max number of writes waiting for the writer
+     */
+    public GroupCommitProductDao(DataSource dataSource, int maxGroupSize, Duration maxDelay, int queueCapacity) {
+        if (maxGroupSize <= 0) {
+            throw new IllegalArgumentException("Max group size should be positive");
+        }
+        this.dataSource = dataSource;
+        this.delegate = new ProductDaoImpl(dataSource, maxGroupSize);
+        this.maxGroupSize = maxGroupSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::runWriter, "group-commit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a product to be saved with the next group
+     *
+     * @return a future completed with the generated id once the group is committed
+     */
+    public CompletableFuture<Long> saveAsync(Product product) {
+        Objects.requireNonNull(product);
+        return submit(new PendingWrite(WriteType.SAVE, product));
+    }
+
+    /**
+     * Queues a product to be updated with the next group. The version of the product is incremented once the group
+     * is committed.
+     *
+     * @return a future completed once the group is committed
+     */
+    public CompletableFuture<Void> updateAsync(Product product) {
+        Objects.requireNonNull(product);
+        return submit(new PendingWrite(WriteType.UPDATE, product)).thenAccept(id -> {
+        });
+    }
+
+    /**
+     * A write offered while the writer is stopping is either drained by the writer, or taken back here, as the writer
+     * sets {@code writerStopped} before its final drain
+     */
+    private CompletableFuture<Long> submit(PendingWrite write) {
+        if (closed || writerStopped) {
+            write.future.completeExceptionally(new RejectedExecutionException("Group commit writer is closed"));
+        } else if (!queue.offer(write)) {
+            write.future.completeExceptionally(new RejectedExecutionException(String.format(
+                    "Group commit queue is full, %d writes are waiting", queue.size())));
+        } else if ((closed || writerStopped) && queue.remove(write)) {
+            write.future.completeExceptionally(new RejectedExecutionException("Group commit writer is closed"));
+        }
+        return write.future;
+    }
+
+    @Override
+    public void save(Product product) {
+        await(saveAsync(product));
+    }
+
+    @Override
+    public void update(Product product) {
+        await(updateAsync(product));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of committed transactions
+     */
+    public long getCommittedGroups() {
+        return committedGroups.sum();
+    }
+
+    /**
+     * @return number of writes in committed transactions, including writes that failed and were rolled back to
+     * their savepoints
+     */
+    public long getCommittedWrites() {
+        return committedWrites.sum();
+    }
+
+    /**
+     * Whatever stops the writer (close, interrupt or an {@link Error}), no future is left incomplete: the current group
+     * fails, and the writes still queued are rejected
+     */
+    private void runWriter() {
+        List<PendingWrite> group = new ArrayList<>(maxGroupSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collectGroup(group, System.nanoTime() + maxDelayNanos);
+                writeGroup(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writerStopped = true;
+            failAll(group, new DaoOperationException("Group commit writer stopped before the group was committed"));
+            List<PendingWrite> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            queued.forEach(write -> write.future.completeExceptionally(
+                    new RejectedExecutionException("Group commit writer is closed")));
+        }
+    }
+
+    private void collectGroup(List<PendingWrite> group, long deadlineNanos) throws InterruptedException {
+        queue.drainTo(group, maxGroupSize - group.size());
+        while (group.size() < maxGroupSize) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            PendingWrite next = remainingNanos > 0 ? queue.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+            queue.drainTo(group, maxGroupSize - group.size());
+        }
+    }
+
+    private void writeGroup(List<PendingWrite> group) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int from = 0;
+                while (from < group.size()) {
+                    from = group.get(from).type == WriteType.SAVE
+                            ? writeSaves(group, from, connection)
+                            : writeUpdate(group.get(from), connection, from + 1);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            group.stream()
+                    .filter(write -> write.type == WriteType.SAVE)
+                    .forEach(write -> write.product.setId(null));
+            failAll(group, new DaoOperationException(String.format("Error committing a group of %d writes",
+                    group.size()), e));
+            return;
+        }
+        committedGroups.increment();
+        committedWrites.add(group.size());
+        group.forEach(PendingWrite::complete);
+    }
+
+    /**
+     * Saves the run of consecutive saves that starts at {@code from} in one batch
+     *
+     * @return index of the first write after the run
+     */
+    private int writeSaves(List<PendingWrite> group, int from, Connection connection) throws SQLException {
+        int to = from;
+        List<Product> products = new ArrayList<>();
+        while (to < group.size() && group.get(to).type == WriteType.SAVE) {
+            products.add(group.get(to++).product);
+        }
+        for (FailedRow failedRow : delegate.saveAll(products, connection)) {
+            PendingWrite write = group.get(from + failedRow.getIndex());
+            write.error = new DaoOperationException(String.format("Error saving product: %s", write.product),
+                    failedRow.getCause());
+        }
+        return to;
+    }
+
+    /**
+     * @return index of the next write
+     */
+    private int writeUpdate(PendingWrite write, Connection connection, int next) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            delegate.updateRow(write.product, connection);
+            connection.releaseSavepoint(savepoint);
+        } catch (DaoOperationException e) {
+            connection.rollback(savepoint);
+            write.error = e;
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            write.error = new DaoOperationException(String.format("Error updating product: %s", write.product), e);
+        }
+        return next;
+    }
+
+    /**
+     * Futures that are already completed keep their results
+     */
+    private static void failAll(List<PendingWrite> group, DaoOperationException error) {
+        group.forEach(write -> write.future.completeExceptionally(error));
+    }
+
+    /**
+     * Stops accepting writes, and waits until the writer commits the queued ones
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<Long> saveAll(Collection<Product> products) {
+        return delegate.saveAll(products);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Product> streamAll(int fetchSize) {
+        return delegate.streamAll(fetchSize);
+    }
+
+    @Override
+    public Page<Product> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Product> findPageByExpirationDate(String pageToken, int limit) {
+        return delegate.findPageByExpirationDate(pageToken, limit);
+    }
+
+    @Override
+    public Product findOne(Long id) {
+        return delegate.findOne(id);
+    }
+
+    @Override
+    public MultiGetResult<Product> findAllByIds(Collection<Long> ids) {
+        return delegate.findAllByIds(ids);
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Product> products) {
+        return delegate.upsertAll(products);
+    }
+
+    @Override
+    public void update(Product original, Product product) {
+        delegate.update(original, product);
+    }
+
+    @Override
+    public void remove(Product product) {
+        delegate.remove(product);
+    }
+
+    private enum WriteType {
+        SAVE, UPDATE
+    }
+
+    private static class PendingWrite {
+        private final WriteType type;
+        private final Product product;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private DaoOperationException error;
+
+        PendingWrite(WriteType type, Product product) {
+            this.type = type;
+            this.product = product;
+        }
+
+        /**
+         * Completes the caller's future after the commit, an update increments the version only when it's durable
+         */
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+                return;
+            }
+            if (type == WriteType.UPDATE && product.getVersion() != null) {
+                product.setVersion(product.getVersion() + 1);
+            }
+            future.complete(product.getId());
+        }
+    }
+}
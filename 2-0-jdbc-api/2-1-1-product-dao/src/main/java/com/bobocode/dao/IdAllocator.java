@@ -0,0 +1,30 @@
+package com.bobocode.dao;
+
+import com.bobocode.util.id.BlockIdAllocator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link IdAllocator} provides product ids that are unique across all databases that store products, so that ids
+ * can be assigned before a product is stored, e.g. to choose a shard by id
+ */
+@FunctionalInterface
+public interface IdAllocator {
+    /**
+     * @param count number of ids
+     * @return new unique ids
+     * @throws com.bobocode.exception.DaoOperationException in case of database errors
+     */
+    List<Long> allocate(int count);
+
+    /**
+     * Adapts an allocator that hands out ids from reserved blocks
+     */
+    static IdAllocator ofBlocks(BlockIdAllocator blockIdAllocator) {
+        return count -> Arrays.stream(blockIdAllocator.allocate(count))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+}
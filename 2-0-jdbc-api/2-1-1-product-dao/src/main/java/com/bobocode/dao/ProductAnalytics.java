@@ -0,0 +1,133 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.ProducerInventoryValue;
+import com.bobocode.model.ProducerPriceStats;
+import com.bobocode.model.WeeklyExpirations;
+import com.bobocode.util.Dialect;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ProductAnalytics} provides aggregated statistics of products for dashboards. Every statistic is computed by
+ * a single aggregate query, so only the result rows are sent from the database instead of the whole
+ * {@code products} table. Grouping by producer is served by the {@code (producer, price)} index, and the expiration
+ * histogram by the {@code (expiration_date, id)} index.
+ */
+public class ProductAnalytics {
+    private static final String SELECT_PRICE_STATS_POSTGRESQL_SQL = "SELECT producer, count(*), min(price), " +
+            "max(price), avg(price), percentile_cont(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY price) " +
+            "FROM products GROUP BY producer ORDER BY producer";
+    private static final String SELECT_PRICE_STATS_H2_SQL = "SELECT producer, count(*), min(price), max(price), " +
+            "avg(price), median(price) FROM products GROUP BY producer ORDER BY producer";
+    private static final String SELECT_WEEKLY_EXPIRATIONS_SQL = "SELECT date_trunc('week', expiration_date) " +
+            "AS week_start, count(*) FROM products WHERE expiration_date >= ? AND expiration_date < ? " +
+            "GROUP BY week_start ORDER BY week_start";
+    private static final String SELECT_TOP_PRODUCERS_SQL = "SELECT producer, count(*), sum(price) AS total_value " +
+            "FROM products GROUP BY producer ORDER BY total_value DESC, producer LIMIT ?";
+
+    private final DataSource dataSource;
+
+    public ProductAnalytics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Computes price statistics of every producer. Products without price are counted, but don't affect prices.
+     *
+     * @return statistics ordered by producer
+     * @throws DaoOperationException in case of database errors
+     */
+    public List<ProducerPriceStats> findPriceStatsByProducer() {
+        try (Connection connection = dataSource.getConnection()) {
+            Dialect dialect = Dialect.of(connection);
+            String sql = dialect == Dialect.POSTGRESQL ? SELECT_PRICE_STATS_POSTGRESQL_SQL : SELECT_PRICE_STATS_H2_SQL;
+            try (PreparedStatement selectStatement = connection.prepareStatement(sql)) {
+                ResultSet resultSet = selectStatement.executeQuery();
+                List<ProducerPriceStats> stats = new ArrayList<>();
+                while (resultSet.next()) {
+                    stats.add(parsePriceStats(resultSet, dialect));
+                }
+                return stats;
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error computing price statistics", e);
+        }
+    }
+
+    private ProducerPriceStats parsePriceStats(ResultSet resultSet, Dialect dialect) throws SQLException {
+        BigDecimal[] percentiles = new BigDecimal[3];
+        if (dialect == Dialect.POSTGRESQL) {
+            Double[] values = (Double[]) resultSet.getArray(6).getArray();
+            for (int i = 0; i < percentiles.length; i++) {
+                percentiles[i] = values[i] != null ? BigDecimal.valueOf(values[i]) : null;
+            }
+        } else {
+            percentiles[0] = resultSet.getBigDecimal(6);
+        }
+        return new ProducerPriceStats(resultSet.getString(1), resultSet.getLong(2), resultSet.getBigDecimal(3),
+                resultSet.getBigDecimal(4), resultSet.getBigDecimal(5), percentiles[0], percentiles[1],
+                percentiles[2]);
+    }
+
+    /**
+     * Builds a histogram of products that expire within the period, with one bucket per week. Weeks start on Monday,
+     * and weeks without expirations are omitted.
+     *
+     * @param from the first day of the period
+     * @param to   the day after the period
+     * @return buckets ordered by week
+     * @throws DaoOperationException in case of database errors
+     */
+    public List<WeeklyExpirations> countExpirationsByWeek(LocalDate from, LocalDate to) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement selectStatement = connection.prepareStatement(SELECT_WEEKLY_EXPIRATIONS_SQL)) {
+            selectStatement.setDate(1, Date.valueOf(from));
+            selectStatement.setDate(2, Date.valueOf(to));
+            ResultSet resultSet = selectStatement.executeQuery();
+            List<WeeklyExpirations> histogram = new ArrayList<>();
+            while (resultSet.next()) {
+                LocalDate weekStart = resultSet.getTimestamp(1).toLocalDateTime().toLocalDate();
+                histogram.add(new WeeklyExpirations(weekStart, resultSet.getLong(2)));
+            }
+            return histogram;
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error counting expirations by week", e);
+        }
+    }
+
+    /**
+     * Finds producers with the greatest total price of stored products
+     *
+     * @param limit max number of producers
+     * @return producers ordered by total price descending
+     * @throws DaoOperationException in case of database errors
+     */
+    public List<ProducerInventoryValue> findTopProducersByInventoryValue(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit should be positive");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement selectStatement = connection.prepareStatement(SELECT_TOP_PRODUCERS_SQL)) {
+            selectStatement.setInt(1, limit);
+            ResultSet resultSet = selectStatement.executeQuery();
+            List<ProducerInventoryValue> producers = new ArrayList<>();
+            while (resultSet.next()) {
+                producers.add(new ProducerInventoryValue(resultSet.getString(1), resultSet.getLong(2),
+                        resultSet.getBigDecimal(3)));
+            }
+            return producers;
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error finding top producers", e);
+        }
+    }
+}
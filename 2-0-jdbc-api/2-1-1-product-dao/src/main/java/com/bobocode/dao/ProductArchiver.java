@@ -0,0 +1,196 @@
+package com.bobocode.dao;
+
+import com.bobocode.dao.ProductDaoImpl.ExpirationDateKey;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.ArchiveProgress;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ProductArchiver} moves expired products from the {@code products} table to {@code products_archive}. Rows
+ * are moved in chunks in {@code (expiration_date, id)} order, each chunk in its own short transaction: the chunk is
+ * locked, copied to the archive and deleted. So unlike one big {@code DELETE}, the job never holds locks for long and
+ * can be stopped at any time without losing or duplicating rows.
+ * <p>
+ * Chunks are read by keyset on the {@code (expiration_date, id)} index: every chunk starts reading the index right
+ * after the previous one and stops after {@code chunkSize} entries, so neither expired rows that are already moved nor
+ * rows that are not expired are read again, and a backlog is archived in time linear to its size.
+ * <p>
+ * The job pauses between chunks to leave room for regular traffic. Every chunk is reported to the progress listener
+ * with a checkpoint, a run that was interrupted or failed is resumed from the last reported checkpoint.
+ */
+public class ProductArchiver {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final Duration DEFAULT_PAUSE = Duration.ofMillis(50);
+    private static final String SELECT_FIRST_EXPIRED_SQL = "SELECT id, expiration_date FROM products " +
+            "WHERE expiration_date < ? ORDER BY expiration_date, id LIMIT ? FOR UPDATE";
+    private static final String SELECT_EXPIRED_AFTER_SQL = "SELECT id, expiration_date FROM products " +
+            "WHERE expiration_date < ? AND expiration_date >= ? AND (expiration_date > ? OR id > ?) " +
+            "ORDER BY expiration_date, id LIMIT ? FOR UPDATE";
+    private static final String ARCHIVE_SQL = "INSERT INTO products_archive(id, name, producer, price, " +
+            "expiration_date, creation_time, version, archived_at) SELECT id, name, producer, price, " +
+            "expiration_date, creation_time, version, ? FROM products WHERE id IN (%s)";
+    private static final String DELETE_SQL = "DELETE FROM products WHERE id IN (%s)";
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final Duration pause;
+    private volatile ArchiveProgress lastProgress;
+
+    public ProductArchiver(DataSource dataSource) {
+        this(dataSource, DEFAULT_CHUNK_SIZE, DEFAULT_PAUSE);
+    }
+
+    /**
+     * @param dataSource a data source of the products database
+     * @param chunkSize  max number of products moved in one transaction
+     * @param pause      time to wait between chunks
+     */
+    public ProductArchiver(DataSource dataSource, int chunkSize, Duration pause) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive");
+        }
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+    }
+
+    public ArchiveProgress archiveExpired(LocalDate expiredBefore, Consumer<ArchiveProgress> progressListener) {
+        return archiveExpired(expiredBefore, null, progressListener);
+    }
+
+    /**
+     * Moves all products with expiration date before provided date to the archive. If the current thread is
+     * interrupted, the run stops after the current chunk and returns incomplete progress.
+     *
+     * @param expiredBefore    products that expire before this date are archived
+     * @param checkpoint       the checkpoint of a previous run, only products after it are archived, or
+     *                         {@code null} to start from the beginning
+     * @param progressListener receives progress after every chunk
+     * @return the final progress of the run
+     * @throws IllegalArgumentException if the checkpoint is invalid
+     * @throws DaoOperationException    in case of database errors, chunks that were reported are archived
+     */
+    public ArchiveProgress archiveExpired(LocalDate expiredBefore, String checkpoint,
+                                          Consumer<ArchiveProgress> progressListener) {
+        long startNanos = System.nanoTime();
+        long archivedRows = 0;
+        int chunks = 0;
+        ExpirationDateKey lastKey = checkpoint != null ? ExpirationDateKey.decode(checkpoint) : null;
+        while (true) {
+            List<ExpirationDateKey> archivedKeys = archiveChunk(expiredBefore, lastKey);
+            if (archivedKeys.isEmpty()) {
+                return report(archivedRows, chunks, lastKey, startNanos, true, progressListener);
+            }
+            archivedRows += archivedKeys.size();
+            chunks++;
+            lastKey = archivedKeys.get(archivedKeys.size() - 1);
+            boolean completed = archivedKeys.size() < chunkSize;
+            ArchiveProgress progress = report(archivedRows, chunks, lastKey, startNanos, completed, progressListener);
+            if (completed || !sleep(pause)) {
+                return progress;
+            }
+        }
+    }
+
+    /**
+     * @return progress of the current or the last run, or {@code null} if the archiver has never run
+     */
+    public ArchiveProgress getLastProgress() {
+        return lastProgress;
+    }
+
+    private List<ExpirationDateKey> archiveChunk(LocalDate expiredBefore, ExpirationDateKey afterKey) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<ExpirationDateKey> keys = lockExpiredRows(connection, expiredBefore, afterKey);
+                if (!keys.isEmpty()) {
+                    moveToArchive(connection, keys.stream().map(ExpirationDateKey::getId).collect(Collectors.toList()));
+                }
+                connection.commit();
+                return keys;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error archiving products after %s", afterKey), e);
+        }
+    }
+
+    private List<ExpirationDateKey> lockExpiredRows(Connection connection, LocalDate expiredBefore,
+                                                    ExpirationDateKey afterKey) throws SQLException {
+        String sql = afterKey == null ? SELECT_FIRST_EXPIRED_SQL : SELECT_EXPIRED_AFTER_SQL;
+        try (PreparedStatement selectStatement = connection.prepareStatement(sql)) {
+            int parameterIndex = 1;
+            selectStatement.setDate(parameterIndex++, Date.valueOf(expiredBefore));
+            if (afterKey != null) {
+                selectStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(afterKey.getExpirationDate()));
+                selectStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(afterKey.getExpirationDate()));
+                selectStatement.setLong(parameterIndex++, afterKey.getId());
+            }
+            selectStatement.setInt(parameterIndex, chunkSize);
+            ResultSet resultSet = selectStatement.executeQuery();
+            List<ExpirationDateKey> keys = new ArrayList<>();
+            while (resultSet.next()) {
+                keys.add(new ExpirationDateKey(resultSet.getTimestamp(2).toLocalDateTime(), resultSet.getLong(1)));
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Rows are copied and deleted by the locked ids rather than by the expiration condition, so a row that is
+     * changed or inserted meanwhile cannot be deleted without being archived
+     */
+    private void moveToArchive(Connection connection, List<Long> ids) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (PreparedStatement archiveStatement = connection.prepareStatement(String.format(ARCHIVE_SQL, placeholders));
+             PreparedStatement deleteStatement = connection.prepareStatement(String.format(DELETE_SQL, placeholders))) {
+            archiveStatement.setTimestamp(1, Timestamp.from(Instant.now()));
+            for (int i = 0; i < ids.size(); i++) {
+                archiveStatement.setLong(i + 2, ids.get(i));
+                deleteStatement.setLong(i + 1, ids.get(i));
+            }
+            archiveStatement.executeUpdate();
+            deleteStatement.executeUpdate();
+        }
+    }
+
+    private ArchiveProgress report(long archivedRows, int chunks, ExpirationDateKey lastKey, long startNanos,
+                                   boolean completed, Consumer<ArchiveProgress> progressListener) {
+        String checkpoint = lastKey != null ? lastKey.encode() : null;
+        ArchiveProgress progress = new ArchiveProgress(archivedRows, chunks, checkpoint,
+                Duration.ofNanos(System.nanoTime() - startNanos), completed);
+        lastProgress = progress;
+        progressListener.accept(progress);
+        return progress;
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.LoadProgress;
+import com.bobocode.model.LoadProgress.Stage;
+import com.bobocode.util.Dialect;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ProductBulkLoader} loads products from a CSV/TSV source using native bulk load of the database, which is much
+ * faster than batched inserts. The first line of the source is a header with column names of the {@code products}
+ * table ({@code name}, {@code producer}, {@code price}, {@code expiration_date} and optionally {@code creation_time}),
+ * the other lines are rows.
+ * <ul>
+ * <li>PostgreSQL: the source is streamed to {@code COPY products FROM STDIN}</li>
+ * <li>H2: the source is streamed to a temporary file, which is loaded with {@code INSERT ... SELECT FROM CSVREAD}, as
+ * H2 cannot read CSV from a client stream. The file is deleted afterwards. {@code CSVREAD} opens the file on the
+ * database side, so this works only with an embedded (in-process) H2 database, a H2 server is rejected.</li>
+ * </ul>
+ * Other databases are rejected. In both cases the source is never loaded into memory. The progress listener is called
+ * every {@code progressInterval} read rows and once more with the final number of loaded rows. On PostgreSQL those
+ * rows are already sent to the database ({@link Stage#LOADING}), on H2 they are only spooled to the file
+ * ({@link Stage#SPOOLING}), and the load itself is reported only once it's done ({@link Stage#LOADED}).
+ */
+public class ProductBulkLoader {
+    public static final int DEFAULT_PROGRESS_INTERVAL = 100_000;
+    private static final Set<String> LOADABLE_COLUMNS =
+            Set.of("name", "producer", "price", "expiration_date", "creation_time");
+
+    private final DataSource dataSource;
+    private final char delimiter;
+    private final int progressInterval;
+
+    public ProductBulkLoader(DataSource dataSource) {
+        this(dataSource, ',', DEFAULT_PROGRESS_INTERVAL);
+    }
+
+    /**
+     * @param dataSource       a data source of the products database
+     * @param delimiter        field delimiter, e.g. {@code ','} for CSV or {@code '\t'} for TSV
+     * @param progressInterval number of rows between progress reports
+     */
+    public ProductBulkLoader(DataSource dataSource, char delimiter, int progressInterval) {
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("Progress interval should be positive");
+        }
+        this.dataSource = dataSource;
+        this.delimiter = delimiter;
+        this.progressInterval = progressInterval;
+    }
+
+    public LoadProgress load(InputStream source, Consumer<LoadProgress> progressListener) {
+        return load(new InputStreamReader(source, StandardCharsets.UTF_8), progressListener);
+    }
+
+    /**
+     * Loads all rows of the source into the {@code products} table in one transaction
+     *
+     * @param source           CSV/TSV source with a header line, it's not closed
+     * @param progressListener receives progress reports
+     * @return the number of loaded rows and the load time
+     * @throws IllegalArgumentException if the header has unknown columns
+     * @throws DaoOperationException    in case of database or I/O errors, or if the database is not supported
+     */
+    public LoadProgress load(Reader source, Consumer<LoadProgress> progressListener) {
+        long startNanos = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            Dialect dialect = Dialect.of(connection);
+            validateDatabase(connection, dialect);
+            BufferedReader reader = new BufferedReader(source);
+            List<String> columns = parseHeader(reader.readLine());
+            Stage stage = dialect == Dialect.POSTGRESQL ? Stage.LOADING : Stage.SPOOLING;
+            ProgressReader rowsReader = new ProgressReader(reader, startNanos, stage, progressListener);
+            long rows = dialect == Dialect.POSTGRESQL
+                    ? copyIn(connection, columns, rowsReader)
+                    : csvRead(connection, columns, rowsReader);
+            LoadProgress result = new LoadProgress(rows, Duration.ofNanos(System.nanoTime() - startNanos),
+                    Stage.LOADED);
+            progressListener.accept(result);
+            return result;
+        } catch (SQLException | IOException e) {
+            throw new DaoOperationException("Error loading products", e);
+        }
+    }
+
+    private static void validateDatabase(Connection connection, Dialect dialect) throws SQLException {
+        if (dialect == Dialect.OTHER) {
+            throw new DaoOperationException("Bulk load is supported only on PostgreSQL and H2");
+        }
+        String url = connection.getMetaData().getURL();
+        if (dialect == Dialect.H2 && (url.startsWith("jdbc:h2:tcp:") || url.startsWith("jdbc:h2:ssl:"))) {
+            throw new DaoOperationException(String.format(
+                    "Bulk load on H2 needs an embedded database, CSVREAD cannot read client files on %s", url));
+        }
+    }
+
+    private List<String> parseHeader(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("Source has no header line");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : header.split(Pattern.quote(String.valueOf(delimiter)), -1)) {
+            String normalizedColumn = column.trim().replace("\"", "").toLowerCase(Locale.ROOT);
+            if (!LOADABLE_COLUMNS.contains(normalizedColumn)) {
+                throw new IllegalArgumentException(String.format("Unknown column in header: %s", column));
+            }
+            columns.add(normalizedColumn);
+        }
+        return columns;
+    }
+
+    private long copyIn(Connection connection, List<String> columns, Reader rowsReader)
+            throws SQLException, IOException {
+        String copySql = String.format("COPY products(%s) FROM STDIN WITH (FORMAT csv, DELIMITER '%s')",
+                String.join(", ", columns), delimiter);
+        return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, rowsReader);
+    }
+
+    private long csvRead(Connection connection, List<String> columns, Reader rowsReader)
+            throws SQLException, IOException {
+        Path csvFile = Files.createTempFile("products", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+                rowsReader.transferTo(writer);
+            }
+            String insertSql = String.format("INSERT INTO products(%s) SELECT * FROM CSVREAD(%s, %s, %s)",
+                    String.join(", ", columns), toLiteral(csvFile.toString()),
+                    toLiteral(String.join(String.valueOf(delimiter), columns)),
+                    toLiteral(String.format("charset=UTF-8 fieldSeparator=%s", delimiter)));
+            try (Statement insertStatement = connection.createStatement()) {
+                return insertStatement.executeUpdate(insertSql);
+            }
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    /**
+     * H2 resolves the columns of a table function when the statement is prepared, so its arguments must be literals
+     */
+    private static String toLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Counts line breaks while the source is read, and reports progress every {@code progressInterval} lines. Quoted
+     * values with line breaks make the count approximate, the final report has the exact number of loaded rows.
+     */
+    private class ProgressReader extends FilterReader {
+        private final long startNanos;
+        private final Stage stage;
+        private final Consumer<LoadProgress> progressListener;
+        private long rows;
+
+        ProgressReader(Reader reader, long startNanos, Stage stage, Consumer<LoadProgress> progressListener) {
+            super(reader);
+            this.startNanos = startNanos;
+            this.stage = stage;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int ch = super.read();
+            if (ch == '\n') {
+                countRow();
+            }
+            return ch;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + count; i++) {
+                if (buffer[i] == '\n') {
+                    countRow();
+                }
+            }
+            return count;
+        }
+
+        private void countRow() {
+            rows++;
+            if (rows % progressInterval == 0) {
+                progressListener.accept(new LoadProgress(rows, Duration.ofNanos(System.nanoTime() - startNanos),
+                        stage));
+            }
+        }
+    }
+}
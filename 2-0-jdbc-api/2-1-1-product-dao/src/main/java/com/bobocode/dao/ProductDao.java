@@ -1,9 +1,14 @@
 package com.bobocode.dao;
 
 import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
 import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * {@link ProductDao} is a Data Access Object pattern (DAO) that encapsulates all database access and manipulation logic.
@@ -18,6 +23,17 @@ public interface ProductDao {
      */
     void save(Product product);
 
+    /**
+     * Stores new products into the database using JDBC batches. Sets the database-generated IDs to {@link Product}
+     * instances
+     *
+     * @param products new products
+     * @return generated ids in the iteration order of provided products
+     * @throws com.bobocode.exception.BatchSaveException if some products cannot be saved, other products are saved
+     * @throws DaoOperationException                     in case of database errors
+     */
+    List<Long> saveAll(Collection<Product> products);
+
     /**
      * Retrieves and returns all products from the database
      *
@@ -26,6 +42,39 @@ public interface ProductDao {
      */
     List<Product> findAll();
 
+    /**
+     * Returns a lazily populated stream of all products, backed by a forward-only database cursor. Only
+     * {@code fetchSize} rows are kept in memory at a time. The stream holds a database connection, so it must be
+     * closed, e.g. using try-with-resources.
+     *
+     * @param fetchSize number of rows fetched from the database in one round trip
+     * @return stream of all products
+     * @throws DaoOperationException in case of database errors
+     */
+    Stream<Product> streamAll(int fetchSize);
+
+    /**
+     * Returns a page of products ordered by id. It's a keyset pagination, so every page costs the same as the first
+     * one, regardless of how deep it is.
+     *
+     * @param afterId id of the last product of the previous page, or {@code null} for the first page
+     * @param limit   max number of products on the page
+     * @return page of products, its token is the id of the last product
+     * @throws DaoOperationException in case of database errors
+     */
+    Page<Product> findPage(Long afterId, int limit);
+
+    /**
+     * Returns a page of products ordered by expiration date and id, using keyset pagination
+     *
+     * @param pageToken the token of the previous page, or {@code null} for the first page
+     * @param limit     max number of products on the page
+     * @return page of products
+     * @throws DaoOperationException    in case of database errors
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    Page<Product> findPageByExpirationDate(String pageToken, int limit);
+
     /**
      * Returns a product object by provided id
      *
@@ -36,13 +85,49 @@ public interface ProductDao {
     Product findOne(Long id);
 
     /**
-     * Updates existing product.
+     * Returns products by provided ids using a few queries instead of a query per id
      *
-     * @param product stored product with updated fields
+     * @param ids product identifiers, duplicates and {@code null}s are ignored
+     * @return found products keyed by id, and the ids that were not found
      * @throws DaoOperationException in case of database errors
      */
+    MultiGetResult<Product> findAllByIds(Collection<Long> ids);
+
+    /**
+     * Inserts products that don't exist in the database and updates the existing ones, matching them by id. Products
+     * with the same id are upserted once, using the last of them. Versions are not checked, but the versions of
+     * updated rows are incremented.
+     *
+     * @param products products with ids
+     * @return numbers of inserted and updated products
+     * @throws IllegalArgumentException if a product has no id
+     * @throws DaoOperationException    in case of database errors
+     */
+    UpsertResult upsertAll(Collection<Product> products);
+
+    /**
+     * Updates existing product. If the product has a version, the update succeeds only if the stored product has the
+     * same version, and the version of provided product is incremented.
+     *
+     * @param product stored product with updated fields
+     * @throws com.bobocode.exception.OptimisticLockException if the stored product has another version
+     * @throws DaoOperationException                          in case of database errors
+     */
     void update(Product product);
 
+    /**
+     * Updates only the fields of the product that differ from the original, e.g. from a copy taken when the product
+     * was loaded. Nothing is written if no field has changed. Versions are checked the same way as in
+     * {@link #update(Product)}.
+     *
+     * @param original state of the product that is stored in the database
+     * @param product  the same product with updated fields
+     * @throws IllegalArgumentException                       if the products have different ids
+     * @throws com.bobocode.exception.OptimisticLockException if the stored product has another version
+     * @throws DaoOperationException                          in case of database errors
+     */
+    void update(Product original, Product product);
+
     /**
      * Removes an existing product from the database
      *
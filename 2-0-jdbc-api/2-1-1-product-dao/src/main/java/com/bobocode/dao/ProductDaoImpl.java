@@ -1,16 +1,128 @@
 package com.bobocode.dao;
 
+import com.bobocode.exception.BatchSaveException;
+import com.bobocode.exception.BatchSaveException.FailedRow;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.exception.OptimisticLockException;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
 import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+import com.bobocode.util.Dialect;
 import com.bobocode.util.ExerciseNotCompletedException;
+import com.bobocode.util.mapping.BeanRowMapper;
+import com.bobocode.util.mapping.RowMapper;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 public class ProductDaoImpl implements ProductDao {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final BeanRowMapper<Product> PRODUCT_MAPPER = BeanRowMapper.of(Product.class);
+    private static final int MAX_IN_LIST_SIZE = 512;
+    private static final int MAX_ARRAY_LOOKUP_SIZE = 10_000;
+    private static final String INSERT_SQL =
+            "INSERT INTO products(name, producer, price, expiration_date) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO products(name, producer, price, expiration_date, id) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_ALL_SQL = "SELECT * FROM products";
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM products WHERE %s";
+    private static final String SELECT_IDS_FOR_UPDATE_SQL = "SELECT id FROM products WHERE %s FOR UPDATE";
+    private static final String UPSERT_H2_SQL = "MERGE INTO products(id, name, producer, price, expiration_date) " +
+            "KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INCREMENT_VERSIONS_SQL = "UPDATE products SET version = version + 1 WHERE %s";
+    private static final String UPSERT_POSTGRESQL_SQL = "INSERT INTO products(id, name, producer, price, " +
+            "expiration_date) VALUES (?, ?, ?, ?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, " +
+            "producer = EXCLUDED.producer, price = EXCLUDED.price, expiration_date = EXCLUDED.expiration_date, " +
+            "version = products.version + 1";
+    private static final int ALL_UPDATABLE_COLUMNS = (1 << UpdatableColumn.values().length) - 1;
+    /**
+     * UPDATE statements for every non-empty set of changed columns, with and without the version check, indexed by
+     * {@link #updateShape}. Columns always go in the same order, so the same changes produce the same SQL, and there
+     * are only 30 distinct statements for the statement cache (the shapes without columns are {@code null}).
+     */
+    private static final String[] UPDATE_SQL_BY_SHAPE = createUpdateSqlByShape();
+    private static final String SELECT_VERSION_SQL = "SELECT version FROM products WHERE id = ?";
+    private static final String SELECT_FIRST_PAGE_SQL = "SELECT * FROM products ORDER BY id LIMIT ?";
+    private static final String SELECT_PAGE_AFTER_ID_SQL =
+            "SELECT * FROM products WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_FIRST_PAGE_BY_EXPIRATION_DATE_SQL =
+            "SELECT * FROM products ORDER BY expiration_date, id LIMIT ?";
+    private static final String SELECT_PAGE_BY_EXPIRATION_DATE_SQL = "SELECT * FROM products " +
+            "WHERE expiration_date >= ? AND (expiration_date > ? OR id > ?) ORDER BY expiration_date, id LIMIT ?";
 
     private final DataSource dataSource;
+    private final int batchSize;
+    private final IdAllocator idAllocator;
+    private final boolean insertsIds;
 
     public ProductDaoImpl(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    public ProductDaoImpl(DataSource dataSource, int batchSize) {
+        this(dataSource, batchSize, null);
+    }
+
+    /**
+     * @param dataSource  a data source of the products database
+     * @param batchSize   max number of rows sent in one JDBC batch by {@link #saveAll(Collection)}
+     * @param idAllocator assigns ids of new products before they are inserted, or {@code null} to use ids
+     *                    generated by the database
+     */
+    public ProductDaoImpl(DataSource dataSource, int batchSize, IdAllocator idAllocator) {
+        this(dataSource, batchSize, idAllocator, idAllocator != null);
+    }
+
+    private ProductDaoImpl(DataSource dataSource, int batchSize, IdAllocator idAllocator, boolean insertsIds) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be positive");
+        }
         this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.idAllocator = idAllocator;
+        this.insertsIds = insertsIds;
+    }
+
+    /**
+     * Creates a DAO whose {@link #saveAll(Collection)} inserts ids that products already have, e.g. ids assigned by
+     * {@link ShardedProductDao}. A product whose id is already stored fails like any other constraint violation,
+     * instead of overwriting the stored row.
+     */
+    static ProductDaoImpl withAssignedIds(DataSource dataSource) {
+        return new ProductDaoImpl(dataSource, DEFAULT_BATCH_SIZE, null, true);
     }
 
     @Override
@@ -18,19 +130,595 @@ public class ProductDaoImpl implements ProductDao {
         throw new ExerciseNotCompletedException();// todo
     }
 
+    /**
+     * Products are inserted in one transaction, a chunk of {@code batchSize} rows per JDBC batch. Each chunk is
+     * guarded by a savepoint. When a batch fails, its chunk is rolled back to the savepoint and inserted again row by
+     * row, so that the failed rows are found exactly and the valid rows of the chunk are still saved.
+     * <p>
+     * With an id allocator, ids are assigned before a chunk is sent, so the driver doesn't have to return generated
+     * keys. Products that failed to save get their id reset to {@code null}.
+     */
+    @Override
+    public List<Long> saveAll(Collection<Product> products) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            List<FailedRow> failedRows = saveAll(products, connection);
+            connection.commit();
+            if (!failedRows.isEmpty()) {
+                throw new BatchSaveException(String.format("Cannot save %d of %d products",
+                        failedRows.size(), products.size()), failedRows);
+            }
+            return products.stream().map(Product::getId).collect(Collectors.toList());
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error saving products", e);
+        }
+    }
+
+    /**
+     * Saves products on provided connection that has auto-commit disabled. The transaction is not committed.
+     *
+     * @return products that failed to save, the other products are saved
+     */
+    List<FailedRow> saveAll(Collection<Product> products, Connection connection) throws SQLException {
+        List<FailedRow> failedRows = new ArrayList<>();
+        try (PreparedStatement insertStatement = prepareInsertStatement(connection)) {
+            List<Product> chunk = new ArrayList<>(Math.min(batchSize, products.size()));
+            int chunkStartIndex = 0;
+            for (Product product : products) {
+                chunk.add(product);
+                if (chunk.size() == batchSize) {
+                    saveChunk(chunk, chunkStartIndex, insertStatement, connection, failedRows);
+                    chunkStartIndex += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                saveChunk(chunk, chunkStartIndex, insertStatement, connection, failedRows);
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        return failedRows;
+    }
+
+    private void saveChunk(List<Product> chunk, int chunkStartIndex, PreparedStatement insertStatement,
+                           Connection connection, List<FailedRow> failedRows) throws SQLException {
+        assignIds(chunk);
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            for (Product product : chunk) {
+                fillInsertStatement(product, insertStatement);
+                insertStatement.addBatch();
+            }
+            insertStatement.executeBatch();
+            setSavedIds(chunk, insertStatement);
+            connection.releaseSavepoint(savepoint);
+        } catch (BatchUpdateException e) {
+            insertStatement.clearBatch();
+            connection.rollback(savepoint);
+            saveRowByRow(chunk, chunkStartIndex, insertStatement, connection, failedRows);
+        }
+    }
+
+    private void saveRowByRow(List<Product> chunk, int chunkStartIndex, PreparedStatement insertStatement,
+                              Connection connection, List<FailedRow> failedRows) throws SQLException {
+        for (int i = 0; i < chunk.size(); i++) {
+            Product product = chunk.get(i);
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                fillInsertStatement(product, insertStatement);
+                insertStatement.executeUpdate();
+                setSavedIds(List.of(product), insertStatement);
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (insertsIds) {
+                    product.setId(null);
+                }
+                failedRows.add(new FailedRow(chunkStartIndex + i, product, e));
+            }
+        }
+    }
+
+    private PreparedStatement prepareInsertStatement(Connection connection) throws SQLException {
+        return insertsIds
+                ? connection.prepareStatement(INSERT_WITH_ID_SQL)
+                : connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    private void assignIds(List<Product> products) {
+        if (idAllocator == null) {
+            return;
+        }
+        List<Long> ids = idAllocator.allocate(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            products.get(i).setId(ids.get(i));
+        }
+    }
+
+    private void fillInsertStatement(Product product, PreparedStatement insertStatement) throws SQLException {
+        insertStatement.setString(1, product.getName());
+        insertStatement.setString(2, product.getProducer());
+        insertStatement.setBigDecimal(3, product.getPrice());
+        if (product.getExpirationDate() != null) {
+            insertStatement.setDate(4, Date.valueOf(product.getExpirationDate()));
+        } else {
+            insertStatement.setNull(4, Types.DATE);
+        }
+        if (insertsIds) {
+            insertStatement.setLong(5, product.getId());
+        }
+    }
+
+    private void setSavedIds(List<Product> products, PreparedStatement insertStatement) throws SQLException {
+        if (insertsIds) {
+            products.forEach(product -> product.setVersion(0L));
+        } else {
+            setGeneratedIds(products, insertStatement);
+        }
+    }
+
+    private void setGeneratedIds(List<Product> products, PreparedStatement insertStatement) throws SQLException {
+        try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
+            for (Product product : products) {
+                if (!generatedKeys.next()) {
+                    throw new DaoOperationException("Can not obtain product ID");
+                }
+                product.setId(generatedKeys.getLong(1));
+                product.setVersion(0L);
+            }
+        }
+    }
+
     @Override
     public List<Product> findAll() {
         throw new ExerciseNotCompletedException();// todo
     }
 
+    /**
+     * PostgreSQL driver uses a cursor, instead of loading the whole result set, only when autocommit is disabled and
+     * the fetch size is set. The transaction is kept open until the stream is closed.
+     */
+    @Override
+    public Stream<Product> streamAll(int fetchSize) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            PreparedStatement selectStatement = connection.prepareStatement(SELECT_ALL_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            selectStatement.setFetchSize(fetchSize);
+            ResultSet resultSet = selectStatement.executeQuery();
+            Connection streamConnection = connection;
+            return StreamSupport.stream(new ResultSetSpliterator(resultSet), false)
+                    .onClose(() -> closeStream(streamConnection, resultSet, selectStatement));
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new DaoOperationException("Error streaming products", e);
+        }
+    }
+
+    private void closeStream(Connection connection, ResultSet resultSet, PreparedStatement selectStatement) {
+        try (connection; selectStatement; resultSet) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error closing products stream", e);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // the original exception is more important
+            }
+        }
+    }
+
+    /**
+     * Reads one row per {@link #tryAdvance(Consumer)}, so the stream never holds more than the driver fetched
+     */
+    private static class ResultSetSpliterator extends Spliterators.AbstractSpliterator<Product> {
+        private final ResultSet resultSet;
+        private final RowMapper<Product> rowMapper;
+
+        ResultSetSpliterator(ResultSet resultSet) throws SQLException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.resultSet = resultSet;
+            this.rowMapper = PRODUCT_MAPPER.forMetaData(resultSet.getMetaData());
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            try {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                action.accept(rowMapper.mapRow(resultSet));
+                return true;
+            } catch (SQLException e) {
+                throw new DaoOperationException("Error reading products", e);
+            }
+        }
+    }
+
+    @Override
+    public Page<Product> findPage(Long afterId, int limit) {
+        validateLimit(limit);
+        String sql = afterId == null ? SELECT_FIRST_PAGE_SQL : SELECT_PAGE_AFTER_ID_SQL;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement selectStatement = connection.prepareStatement(sql)) {
+            int parameterIndex = 1;
+            if (afterId != null) {
+                selectStatement.setLong(parameterIndex++, afterId);
+            }
+            selectStatement.setInt(parameterIndex, limit + 1);
+            List<Product> products = PRODUCT_MAPPER.mapAll(selectStatement.executeQuery());
+            return createPage(products, limit, lastProduct -> String.valueOf(lastProduct.getId()));
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error loading products page after id = %d", afterId), e);
+        }
+    }
+
+    /**
+     * The condition {@code expiration_date >= ? AND (expiration_date > ? OR id > ?)} means
+     * {@code (expiration_date, id) > (?, ?)}. Its first part is a range condition on the leading column of the
+     * {@code (expiration_date, id)} index, so the database starts reading the index right at the page start.
+     */
+    @Override
+    public Page<Product> findPageByExpirationDate(String pageToken, int limit) {
+        validateLimit(limit);
+        String sql = pageToken == null ? SELECT_FIRST_PAGE_BY_EXPIRATION_DATE_SQL
+                : SELECT_PAGE_BY_EXPIRATION_DATE_SQL;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement selectStatement = connection.prepareStatement(sql)) {
+            int parameterIndex = 1;
+            if (pageToken != null) {
+                ExpirationDateKey key = ExpirationDateKey.decode(pageToken);
+                selectStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(key.getExpirationDate()));
+                selectStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(key.getExpirationDate()));
+                selectStatement.setLong(parameterIndex++, key.getId());
+            }
+            selectStatement.setInt(parameterIndex, limit + 1);
+            List<Product> products = PRODUCT_MAPPER.mapAll(selectStatement.executeQuery());
+            return createPage(products, limit, ProductDaoImpl::createExpirationDatePageToken);
+        } catch (SQLException e) {
+            throw new DaoOperationException("Error loading products page by expiration date", e);
+        }
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit should be positive");
+        }
+    }
+
+    /**
+     * Page tokens of {@link #findPageByExpirationDate(String, int)}, shared with {@link ShardedProductDao}
+     */
+    static String createExpirationDatePageToken(Product lastProduct) {
+        return new ExpirationDateKey(lastProduct.getExpirationDate().atStartOfDay(), lastProduct.getId()).encode();
+    }
+
+    /**
+     * One extra row is requested to find out if there is a next page without a separate count query
+     */
+    private static Page<Product> createPage(List<Product> products, int limit,
+                                            Function<Product, String> tokenFunction) {
+        if (products.size() <= limit) {
+            return new Page<>(products, null);
+        }
+        List<Product> pageProducts = products.subList(0, limit);
+        return new Page<>(List.copyOf(pageProducts), tokenFunction.apply(pageProducts.get(limit - 1)));
+    }
+
+    /**
+     * The position of a product in {@code (expiration_date, id)} order. It's encoded into an opaque URL-safe token.
+     * Also used for checkpoints of {@link ProductArchiver}.
+     */
+    @Value
+    static class ExpirationDateKey {
+        LocalDateTime expirationDate;
+        long id;
+
+        String encode() {
+            String key = expirationDate + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ExpirationDateKey decode(String token) {
+            try {
+                String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separatorIndex = key.lastIndexOf(',');
+                return new ExpirationDateKey(LocalDateTime.parse(key.substring(0, separatorIndex)),
+                        Long.parseLong(key.substring(separatorIndex + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException(String.format("Invalid page token: %s", token), e);
+            }
+        }
+    }
+
     @Override
     public Product findOne(Long id) {
         throw new ExerciseNotCompletedException();// todo
     }
 
+    /**
+     * Ids are looked up in chunks to stay within driver parameter limits. On PostgreSQL a chunk is bound as a single
+     * array parameter of {@code id = ANY(?)}. Other databases get {@code IN} lists padded to the next power of two
+     * with the last id, so only a few distinct statements exist and prepared statement caches keep hitting.
+     */
+    @Override
+    public MultiGetResult<Product> findAllByIds(Collection<Long> ids) {
+        List<Long> uniqueIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Product> productsById = new HashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean useArray = Dialect.of(connection) == Dialect.POSTGRESQL;
+            int chunkSize = useArray ? MAX_ARRAY_LOOKUP_SIZE : MAX_IN_LIST_SIZE;
+            for (int from = 0; from < uniqueIds.size(); from += chunkSize) {
+                List<Long> chunk = uniqueIds.subList(from, Math.min(from + chunkSize, uniqueIds.size()));
+                try (PreparedStatement selectStatement = prepareIdStatement(SELECT_BY_IDS_SQL, chunk, connection,
+                        useArray)) {
+                    PRODUCT_MAPPER.mapAll(selectStatement.executeQuery())
+                            .forEach(product -> productsById.put(product.getId(), product));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error loading %d products by ids", uniqueIds.size()), e);
+        }
+        Map<Long, Product> found = new LinkedHashMap<>();
+        Set<Long> missingIds = new LinkedHashSet<>();
+        for (Long id : uniqueIds) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                found.put(id, product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new MultiGetResult<>(found, missingIds);
+    }
+
+    /**
+     * @param sqlTemplate statement with {@code %s} in place of the id condition
+     */
+    private PreparedStatement prepareIdStatement(String sqlTemplate, List<Long> ids, Connection connection,
+                                              boolean useArray) throws SQLException {
+        if (useArray) {
+            PreparedStatement selectStatement = connection.prepareStatement(String.format(sqlTemplate, "id = ANY(?)"));
+            selectStatement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return selectStatement;
+        }
+        int paddedSize = ids.size() == 1 ? 1 : Integer.highestOneBit(ids.size() - 1) << 1;
+        String placeholders = String.join(", ", Collections.nCopies(paddedSize, "?"));
+        PreparedStatement selectStatement = connection.prepareStatement(
+                String.format(sqlTemplate, String.format("id IN (%s)", placeholders)));
+        for (int i = 0; i < paddedSize; i++) {
+            selectStatement.setLong(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        return selectStatement;
+    }
+
+    /**
+     * Rows are upserted in one transaction, a JDBC batch of {@code batchSize} rows at a time. Neither {@code MERGE}
+     * nor {@code ON CONFLICT} tells in a batch update count whether a row was inserted or updated, so before each
+     * batch the existing ids of the chunk are selected {@code FOR UPDATE}. Locked rows cannot be deleted by another
+     * transaction before the batch, but rows that don't exist are not locked. So the counts are exact only while
+     * nobody else inserts the same ids: a row inserted concurrently between the select and the batch is counted as
+     * inserted, though the batch updates it (and on H2 its version is not incremented).
+     * <p>
+     * H2 {@code MERGE ... KEY} cannot refer to the current row, so on H2 versions of the updated rows are incremented
+     * by a separate statement. ({@code MERGE ... USING} would do it in one statement, but it's broken for prepared
+     * statements in H2 1.4.197.)
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<Product> products) {
+        Map<Long, Product> productsById = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product.getId() == null) {
+                throw new IllegalArgumentException(String.format("Product without id cannot be upserted: %s",
+                        product));
+            }
+            productsById.put(product.getId(), product);
+        }
+        List<Long> ids = new ArrayList<>(productsById.keySet());
+        try (Connection connection = dataSource.getConnection()) {
+            Dialect dialect = Dialect.of(connection);
+            connection.setAutoCommit(false);
+            int updated = 0;
+            try (PreparedStatement upsertStatement = connection.prepareStatement(resolveUpsertSql(dialect))) {
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                    List<Long> existingIds = findExistingIds(chunk, connection, dialect);
+                    updated += existingIds.size();
+                    for (Long id : chunk) {
+                        fillUpsertStatement(productsById.get(id), upsertStatement);
+                        upsertStatement.addBatch();
+                    }
+                    upsertStatement.executeBatch();
+                    if (dialect == Dialect.H2 && !existingIds.isEmpty()) {
+                        incrementVersions(existingIds, connection);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return new UpsertResult(ids.size() - updated, updated);
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error upserting %d products", ids.size()), e);
+        }
+    }
+
+    private static String resolveUpsertSql(Dialect dialect) {
+        switch (dialect) {
+            case POSTGRESQL:
+                return UPSERT_POSTGRESQL_SQL;
+            case H2:
+                return UPSERT_H2_SQL;
+            default:
+                throw new DaoOperationException("Upsert is supported only on PostgreSQL and H2");
+        }
+    }
+
+    private List<Long> findExistingIds(List<Long> ids, Connection connection, Dialect dialect) throws SQLException {
+        boolean useArray = dialect == Dialect.POSTGRESQL;
+        int chunkSize = useArray ? MAX_ARRAY_LOOKUP_SIZE : MAX_IN_LIST_SIZE;
+        List<Long> existingIds = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            try (PreparedStatement selectStatement = prepareIdStatement(SELECT_IDS_FOR_UPDATE_SQL, chunk, connection,
+                    useArray)) {
+                ResultSet resultSet = selectStatement.executeQuery();
+                while (resultSet.next()) {
+                    existingIds.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return existingIds;
+    }
+
+    private void incrementVersions(List<Long> ids, Connection connection) throws SQLException {
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size()));
+            try (PreparedStatement updateStatement = prepareIdStatement(INCREMENT_VERSIONS_SQL, chunk, connection,
+                    false)) {
+                updateStatement.executeUpdate();
+            }
+        }
+    }
+
+    private void fillUpsertStatement(Product product, PreparedStatement upsertStatement) throws SQLException {
+        upsertStatement.setLong(1, product.getId());
+        upsertStatement.setString(2, product.getName());
+        upsertStatement.setString(3, product.getProducer());
+        upsertStatement.setBigDecimal(4, product.getPrice());
+        if (product.getExpirationDate() != null) {
+            upsertStatement.setDate(5, Date.valueOf(product.getExpirationDate()));
+        } else {
+            upsertStatement.setNull(5, Types.DATE);
+        }
+    }
+
+    /**
+     * A product with a version is updated only if the row still has the same version, so concurrent writers don't
+     * need row locks for the whole read-modify-write cycle. The version of the product is incremented on success.
+     */
     @Override
     public void update(Product product) {
-        throw new ExerciseNotCompletedException();// todo
+        Objects.requireNonNull(product);
+        update(product, ALL_UPDATABLE_COLUMNS);
+    }
+
+    @Override
+    public void update(Product original, Product product) {
+        Objects.requireNonNull(original);
+        Objects.requireNonNull(product);
+        if (!Objects.equals(original.getId(), product.getId())) {
+            throw new IllegalArgumentException(String.format("Original product id = %d doesn't match id = %d",
+                    original.getId(), product.getId()));
+        }
+        int changedColumns = 0;
+        for (UpdatableColumn column : UpdatableColumn.values()) {
+            if (column.isChanged(original, product)) {
+                changedColumns |= column.mask();
+            }
+        }
+        if (changedColumns != 0) {
+            update(product, changedColumns);
+        }
+    }
+
+    private void update(Product product, int columns) {
+        try (Connection connection = dataSource.getConnection()) {
+            updateRow(product, columns, connection);
+            if (product.getVersion() != null) {
+                product.setVersion(product.getVersion() + 1);
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error updating product: %s", product), e);
+        }
+    }
+
+    /**
+     * Updates all columns of the product on provided connection. The version of the product is not incremented, as
+     * the caller may still roll the update back.
+     *
+     * @throws com.bobocode.exception.OptimisticLockException if the stored product has another version
+     * @throws DaoOperationException                          if the product has no id or doesn't exist
+     */
+    void updateRow(Product product, Connection connection) throws SQLException {
+        updateRow(product, ALL_UPDATABLE_COLUMNS, connection);
+    }
+
+    private void updateRow(Product product, int columns, Connection connection) throws SQLException {
+        if (product.getId() == null) {
+            throw new DaoOperationException(String.format("Cannot update product without id: %s", product));
+        }
+        int updatedRows = executeUpdate(product, columns, connection);
+        if (updatedRows == 0) {
+            throw createUpdateFailure(product, connection);
+        }
+    }
+
+    private int executeUpdate(Product product, int columns, Connection connection) throws SQLException {
+        boolean versioned = product.getVersion() != null;
+        String sql = UPDATE_SQL_BY_SHAPE[updateShape(columns, versioned)];
+        try (PreparedStatement updateStatement = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (UpdatableColumn column : UpdatableColumn.values()) {
+                if ((columns & column.mask()) != 0) {
+                    column.bind(updateStatement, index++, product);
+                }
+            }
+            updateStatement.setLong(index++, product.getId());
+            if (versioned) {
+                updateStatement.setLong(index, product.getVersion());
+            }
+            return updateStatement.executeUpdate();
+        }
+    }
+
+    private static int updateShape(int columns, boolean versioned) {
+        return versioned ? columns | 1 << UpdatableColumn.values().length : columns;
+    }
+
+    private static String[] createUpdateSqlByShape() {
+        int columnCount = UpdatableColumn.values().length;
+        String[] sqlByShape = new String[1 << (columnCount + 1)];
+        for (int columns = 1; columns < 1 << columnCount; columns++) {
+            StringBuilder sql = new StringBuilder("UPDATE products SET ");
+            for (UpdatableColumn column : UpdatableColumn.values()) {
+                if ((columns & column.mask()) != 0) {
+                    sql.append(column.columnName).append(" = ?, ");
+                }
+            }
+            sql.append("version = version + 1 WHERE id = ?");
+            sqlByShape[updateShape(columns, false)] = sql.toString();
+            sqlByShape[updateShape(columns, true)] = sql + " AND version = ?";
+        }
+        return sqlByShape;
+    }
+
+    /**
+     * No row is updated either when the product doesn't exist, or when its version has changed
+     */
+    private DaoOperationException createUpdateFailure(Product product, Connection connection) throws SQLException {
+        try (PreparedStatement selectStatement = connection.prepareStatement(SELECT_VERSION_SQL)) {
+            selectStatement.setLong(1, product.getId());
+            ResultSet resultSet = selectStatement.executeQuery();
+            if (resultSet.next() && product.getVersion() != null) {
+                return new OptimisticLockException(product.getId(), product.getVersion(), resultSet.getLong(1));
+            }
+            return new DaoOperationException(String.format("Product with id = %d does not exist", product.getId()));
+        }
     }
 
     @Override
@@ -38,4 +726,50 @@ public class ProductDaoImpl implements ProductDao {
         throw new ExerciseNotCompletedException();// todo
     }
 
+    /**
+     * Columns that {@code update} can change. The order of constants is the order of columns in UPDATE statements.
+     */
+    private enum UpdatableColumn {
+        NAME("name", Types.VARCHAR, Product::getName),
+        PRODUCER("producer", Types.VARCHAR, Product::getProducer),
+        PRICE("price", Types.DECIMAL, Product::getPrice),
+        EXPIRATION_DATE("expiration_date", Types.DATE,
+                product -> product.getExpirationDate() != null ? Date.valueOf(product.getExpirationDate()) : null);
+
+        private final String columnName;
+        private final int sqlType;
+        private final Function<Product, Object> valueReader;
+
+        UpdatableColumn(String columnName, int sqlType, Function<Product, Object> valueReader) {
+            this.columnName = columnName;
+            this.sqlType = sqlType;
+            this.valueReader = valueReader;
+        }
+
+        int mask() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * Prices are compared ignoring the scale, since {@code 10.0} read from the DB and {@code 10} set by a caller
+         * are the same price
+         */
+        boolean isChanged(Product original, Product product) {
+            Object originalValue = valueReader.apply(original);
+            Object value = valueReader.apply(product);
+            if (originalValue instanceof BigDecimal && value instanceof BigDecimal) {
+                return ((BigDecimal) originalValue).compareTo((BigDecimal) value) != 0;
+            }
+            return !Objects.equals(originalValue, value);
+        }
+
+        void bind(PreparedStatement statement, int index, Product product) throws SQLException {
+            Object value = valueReader.apply(product);
+            if (value != null) {
+                statement.setObject(index, value, sqlType);
+            } else {
+                statement.setNull(index, sqlType);
+            }
+        }
+    }
 }
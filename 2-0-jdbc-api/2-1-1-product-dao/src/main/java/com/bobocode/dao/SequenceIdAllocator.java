@@ -0,0 +1,70 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.util.Dialect;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SequenceIdAllocator} takes ids from a database sequence. Any number of ids is allocated in one round trip.
+ */
+public class SequenceIdAllocator implements IdAllocator {
+    public static final String DEFAULT_SEQUENCE_NAME = "product_id_seq";
+    private static final String SELECT_IDS_POSTGRESQL_SQL = "SELECT nextval(?) FROM generate_series(1, ?)";
+    private static final String SELECT_IDS_H2_SQL = "SELECT NEXTVAL(?) FROM SYSTEM_RANGE(1, ?)";
+
+    private final DataSource dataSource;
+    private final String sequenceName;
+
+    public SequenceIdAllocator(DataSource dataSource) {
+        this(dataSource, DEFAULT_SEQUENCE_NAME);
+    }
+
+    /**
+     * @param dataSource   a data source of the database that has the sequence
+     * @param sequenceName name of the sequence
+     */
+    public SequenceIdAllocator(DataSource dataSource, String sequenceName) {
+        this.dataSource = dataSource;
+        this.sequenceName = sequenceName;
+    }
+
+    @Override
+    public List<Long> allocate(int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            String sql = resolveSql(Dialect.of(connection));
+            try (PreparedStatement selectStatement = connection.prepareStatement(sql)) {
+                selectStatement.setString(1, sequenceName);
+                selectStatement.setInt(2, count);
+                ResultSet resultSet = selectStatement.executeQuery();
+                List<Long> ids = new ArrayList<>(count);
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+                return ids;
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException(String.format("Error allocating ids from %s", sequenceName), e);
+        }
+    }
+
+    private static String resolveSql(Dialect dialect) {
+        switch (dialect) {
+            case POSTGRESQL:
+                return SELECT_IDS_POSTGRESQL_SQL;
+            case H2:
+                return SELECT_IDS_H2_SQL;
+            default:
+                throw new DaoOperationException("Id sequences are supported only on PostgreSQL and H2");
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.bobocode.dao;
+
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Page;
+import com.bobocode.model.ProducerInventoryValue;
+import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+import com.bobocode.model.WeeklyExpirations;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link ShardedProductDao} spreads products over several databases with the same schema. A product is stored in the
+ * shard chosen by its id on a {@link ConsistentHashRing}, so adding a shard moves only a part of products to it. Ids
+ * are assigned by an {@link IdAllocator} before products are stored, so they are unique across all shards.
+ * <p>
+ * Operations on known ids go to their shards only. Operations on the whole catalog (e.g. {@code findAll}, pages and
+ * analytics) are sent to all shards in parallel, and their results are merged. Pages are merged in keyset order, so
+ * paging through a sharded catalog gives the same products in the same order as paging through one database.
+ * <p>
+ * Writes to different shards are not atomic: if a shard fails, products of other shards remain stored.
+ */
+public class ShardedProductDao implements ProductDao, AutoCloseable {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    private static final int SCATTER_FETCH_SIZE = 1000;
+    private static final Comparator<Product> ID_ORDER = Comparator.comparing(Product::getId);
+    private static final Comparator<Product> EXPIRATION_DATE_ORDER =
+            Comparator.comparing(Product::getExpirationDate).thenComparing(Product::getId);
+
+    private final List<Shard> shards;
+    private final ConsistentHashRing<Shard> ring;
+    private final IdAllocator idAllocator;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a DAO that allocates ids from {@link SequenceIdAllocator#DEFAULT_SEQUENCE_NAME} of the first shard
+     */
+    public ShardedProductDao(List<DataSource> dataSources) {
+        this(dataSources, new SequenceIdAllocator(dataSources.get(0)), DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param dataSources  data sources of the shards, the order of shards must never change
+     * @param idAllocator  allocates ids of new products
+     * @param virtualNodes number of ring points per shard
+     */
+    public ShardedProductDao(List<DataSource> dataSources, IdAllocator idAllocator, int virtualNodes) {
+        this.shards = dataSources.stream()
+                .map(Shard::new)
+                .collect(Collectors.toUnmodifiableList());
+        this.ring = new ConsistentHashRing<>(shards, virtualNodes);
+        this.idAllocator = idAllocator;
+        this.executor = createExecutor(shards.size());
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sharded-product-dao-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void save(Product product) {
+        Objects.requireNonNull(product);
+        saveAll(List.of(product));
+    }
+
+    /**
+     * Allocates ids for all products and inserts every product in its shard. Shards are written in parallel. An
+     * allocated id that is already stored in the shard (e.g. a row with a database-generated id) fails its product
+     * with {@link com.bobocode.exception.BatchSaveException}, the stored row is not overwritten. Row indexes of that
+     * exception refer to the products sent to the failed shard.
+     */
+    @Override
+    public List<Long> saveAll(Collection<Product> products) {
+        List<Long> ids = idAllocator.allocate(products.size());
+        int index = 0;
+        for (Product product : products) {
+            product.setId(ids.get(index++));
+        }
+        Map<Shard, List<Product>> productsByShard = groupByShard(products, Product::getId);
+        scatter(productsByShard.keySet(), shard -> shard.dao.saveAll(productsByShard.get(shard)));
+        return ids;
+    }
+
+    /**
+     * @return products of all shards ordered by id
+     */
+    @Override
+    public List<Product> findAll() {
+        return scatter(shards, shard -> {
+            try (Stream<Product> products = shard.dao.streamAll(SCATTER_FETCH_SIZE)) {
+                return products.collect(Collectors.toList());
+            }
+        }).stream()
+                .flatMap(List::stream)
+                .sorted(ID_ORDER)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Streams shards one after another, each shard keeps a connection only while its products are read
+     */
+    @Override
+    public Stream<Product> streamAll(int fetchSize) {
+        return shards.stream().flatMap(shard -> shard.dao.streamAll(fetchSize));
+    }
+
+    @Override
+    public Page<Product> findPage(Long afterId, int limit) {
+        List<Page<Product>> shardPages = scatter(shards, shard -> shard.dao.findPage(afterId, limit));
+        return mergePages(shardPages, limit, ID_ORDER, lastProduct -> String.valueOf(lastProduct.getId()));
+    }
+
+    @Override
+    public Page<Product> findPageByExpirationDate(String pageToken, int limit) {
+        List<Page<Product>> shardPages = scatter(shards,
+                shard -> shard.dao.findPageByExpirationDate(pageToken, limit));
+        return mergePages(shardPages, limit, EXPIRATION_DATE_ORDER, ProductDaoImpl::createExpirationDatePageToken);
+    }
+
+    /**
+     * Every shard page has the first {@code limit} products of the shard after the key, so the first {@code limit}
+     * merged products are the first products of the whole catalog. There is a next page if any shard has more
+     * products or some merged products didn't fit into the page.
+     */
+    private static Page<Product> mergePages(List<Page<Product>> shardPages, int limit, Comparator<Product> order,
+                                            Function<Product, String> tokenFunction) {
+        List<Product> products = shardPages.stream()
+                .flatMap(page -> page.getItems().stream())
+                .sorted(order)
+                .collect(Collectors.toList());
+        boolean hasNext = products.size() > limit || shardPages.stream().anyMatch(Page::hasNext);
+        List<Product> pageProducts = List.copyOf(products.subList(0, Math.min(limit, products.size())));
+        String nextPageToken = hasNext ? tokenFunction.apply(pageProducts.get(pageProducts.size() - 1)) : null;
+        return new Page<>(pageProducts, nextPageToken);
+    }
+
+    @Override
+    public Product findOne(Long id) {
+        Objects.requireNonNull(id);
+        Product product = shardFor(id).dao.findAllByIds(List.of(id)).getFound().get(id);
+        if (product == null) {
+            throw new DaoOperationException(String.format("Product with id = %d does not exist", id));
+        }
+        return product;
+    }
+
+    @Override
+    public MultiGetResult<Product> findAllByIds(Collection<Long> ids) {
+        List<Long> uniqueIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Shard, List<Long>> idsByShard = groupByShard(uniqueIds, Function.identity());
+        Map<Long, Product> productsById = new HashMap<>();
+        scatter(idsByShard.keySet(), shard -> shard.dao.findAllByIds(idsByShard.get(shard)))
+                .forEach(result -> productsById.putAll(result.getFound()));
+        Map<Long, Product> found = new LinkedHashMap<>();
+        Set<Long> missingIds = new LinkedHashSet<>();
+        for (Long id : uniqueIds) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                found.put(id, product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new MultiGetResult<>(found, missingIds);
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Product> products) {
+        for (Product product : products) {
+            if (product.getId() == null) {
+                throw new IllegalArgumentException(String.format("Cannot upsert product without id: %s", product));
+            }
+        }
+        Map<Shard, List<Product>> productsByShard = groupByShard(products, Product::getId);
+        int inserted = 0;
+        int updated = 0;
+        for (UpsertResult result : scatter(productsByShard.keySet(),
+                shard -> shard.dao.upsertAll(productsByShard.get(shard)))) {
+            inserted += result.getInserted();
+            updated += result.getUpdated();
+        }
+        return new UpsertResult(inserted, updated);
+    }
+
+    @Override
+    public void update(Product product) {
+        Objects.requireNonNull(product);
+        shardFor(product.getId()).dao.update(product);
+    }
+
+    @Override
+    public void update(Product original, Product product) {
+        Objects.requireNonNull(product);
+        shardFor(product.getId()).dao.update(original, product);
+    }
+
+    @Override
+    public void remove(Product product) {
+        Objects.requireNonNull(product);
+        shardFor(product.getId()).dao.remove(product);
+    }
+
+    /**
+     * Same as {@link ProductAnalytics#countExpirationsByWeek(LocalDate, LocalDate)} over all shards
+     */
+    public List<WeeklyExpirations> countExpirationsByWeek(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> countsByWeek = new TreeMap<>();
+        scatter(shards, shard -> shard.analytics.countExpirationsByWeek(from, to)).stream()
+                .flatMap(List::stream)
+                .forEach(bucket -> countsByWeek.merge(bucket.getWeekStart(), bucket.getCount(), Long::sum));
+        return countsByWeek.entrySet().stream()
+                .map(entry -> new WeeklyExpirations(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link ProductAnalytics#findTopProducersByInventoryValue(int)} over all shards. A producer's products
+     * can be in any shard, so every shard returns totals of all its producers, which are summed up before the top is
+     * taken.
+     */
+    public List<ProducerInventoryValue> findTopProducersByInventoryValue(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit should be positive");
+        }
+        Map<String, ProducerInventoryValue> totalsByProducer = new HashMap<>();
+        scatter(shards, shard -> shard.analytics.findTopProducersByInventoryValue(Integer.MAX_VALUE)).stream()
+                .flatMap(List::stream)
+                .forEach(value -> totalsByProducer.merge(value.getProducer(), value, ShardedProductDao::sum));
+        return totalsByProducer.values().stream()
+                .sorted(Comparator.comparing(ProducerInventoryValue::getTotalValue,
+                                Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(ProducerInventoryValue::getProducer))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static ProducerInventoryValue sum(ProducerInventoryValue first, ProducerInventoryValue second) {
+        BigDecimal totalValue = first.getTotalValue() == null ? second.getTotalValue()
+                : second.getTotalValue() == null ? first.getTotalValue()
+                : first.getTotalValue().add(second.getTotalValue());
+        return new ProducerInventoryValue(first.getProducer(), first.getCount() + second.getCount(), totalValue);
+    }
+
+    private Shard shardFor(Long id) {
+        if (id == null) {
+            throw new DaoOperationException("Cannot route product without id");
+        }
+        return ring.nodeFor(id);
+    }
+
+    private <T> Map<Shard, List<T>> groupByShard(Collection<T> items, Function<T, Long> idFunction) {
+        Map<Shard, List<T>> itemsByShard = new LinkedHashMap<>();
+        for (T item : items) {
+            itemsByShard.computeIfAbsent(shardFor(idFunction.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return itemsByShard;
+    }
+
+    /**
+     * Runs an operation on every shard in parallel and waits for all of them. The first failure is rethrown.
+     */
+    private <R> List<R> scatter(Collection<Shard> targetShards, Function<Shard, R> operation) {
+        if (targetShards.size() == 1) {
+            return List.of(operation.apply(targetShards.iterator().next()));
+        }
+        List<CompletableFuture<R>> futures = targetShards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> operation.apply(shard), executor))
+                .collect(Collectors.toList());
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static class Shard {
+        private final ProductDao dao;
+        private final ProductAnalytics analytics;
+
+        Shard(DataSource dataSource) {
+            this.dao = ProductDaoImpl.withAssignedIds(dataSource);
+            this.analytics = new ProductAnalytics(dataSource);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bobocode.exception;
+
+import com.bobocode.model.Product;
+import lombok.Value;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link BatchSaveException} is thrown when some products of a batch cannot be saved. It tells exactly which rows
+ * failed and why. All other rows of the batch are saved and have their generated ids set.
+ */
+public class BatchSaveException extends DaoOperationException {
+    private final List<FailedRow> failedRows;
+
+    public BatchSaveException(String message, List<FailedRow> failedRows) {
+        super(message, failedRows.get(0).getCause());
+        this.failedRows = List.copyOf(failedRows);
+    }
+
+    public List<FailedRow> getFailedRows() {
+        return failedRows;
+    }
+
+    /**
+     * A product that cannot be saved and its position in the saved collection
+     */
+    @Value
+    public static class FailedRow {
+        int index;
+        Product product;
+        SQLException cause;
+    }
+}
@@ -0,0 +1,31 @@
+package com.bobocode.exception;
+
+/**
+ * {@link OptimisticLockException} is thrown when a product cannot be updated because another writer has changed it
+ * since it was read. The product should be read again and the change applied to the fresh version.
+ */
+public class OptimisticLockException extends DaoOperationException {
+    private final Long id;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public OptimisticLockException(Long id, long expectedVersion, long actualVersion) {
+        super(String.format("Product with id = %d has version %d, but version %d was expected",
+                id, actualVersion, expectedVersion));
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -0,0 +1,24 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * {@link ArchiveProgress} describes how many expired products an archive run has moved so far. The checkpoint is an
+ * opaque token of the last archived product, a stopped run is resumed by passing it to the next run. It's
+ * {@code null} if a run started from the beginning hasn't archived anything yet.
+ */
+@Value
+public class ArchiveProgress {
+    long archivedRows;
+    int chunks;
+    String checkpoint;
+    Duration elapsed;
+    boolean completed;
+
+    public double getRowsPerSecond() {
+        long elapsedNanos = Math.max(elapsed.toNanos(), 1);
+        return archivedRows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+/**
+ * {@link CacheStats} is a snapshot of cache counters. Lookups of cached missing ids count as hits.
+ */
+@Value
+public class CacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    int size;
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
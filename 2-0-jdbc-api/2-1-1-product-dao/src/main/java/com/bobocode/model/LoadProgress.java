@@ -0,0 +1,35 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * {@link LoadProgress} describes how many rows a bulk load has processed so far, and what was done with them
+ */
+@Value
+public class LoadProgress {
+    long rows;
+    Duration elapsed;
+    Stage stage;
+
+    public enum Stage {
+        /**
+         * Rows were sent to the database
+         */
+        LOADING,
+        /**
+         * Rows were written to a temporary file, the database hasn't read them yet
+         */
+        SPOOLING,
+        /**
+         * Rows are loaded, the row count is exact
+         */
+        LOADED
+    }
+
+    public double getRowsPerSecond() {
+        long elapsedNanos = Math.max(elapsed.toNanos(), 1);
+        return rows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,21 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link MultiGetResult} is a result of loading many entities by ids at once. Found entities are keyed by id, and the
+ * ids that don't exist in the database are listed separately.
+ *
+ * @param <T> entity type
+ */
+@Value
+public class MultiGetResult<T> {
+    /**
+     * Found entities in the order of requested ids
+     */
+    Map<Long, T> found;
+    Set<Long> missingIds;
+}
@@ -0,0 +1,24 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * {@link Page} is a page of keyset pagination. Instead of an offset, the next page is requested with
+ * {@code nextPageToken}, that points to the last item of this page.
+ *
+ * @param <T> item type
+ */
+@Value
+public class Page<T> {
+    List<T> items;
+    /**
+     * The token to request the next page with, or {@code null} if this page is the last one
+     */
+    String nextPageToken;
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link ProducerInventoryValue} is the number of stored products of a producer and their total price
+ */
+@Value
+public class ProducerInventoryValue {
+    String producer;
+    long count;
+    BigDecimal totalValue;
+}
@@ -0,0 +1,21 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link ProducerPriceStats} summarizes prices of products of one producer. Percentiles are interpolated like
+ * {@code percentile_cont}, {@code p90} and {@code p99} are {@code null} on databases that can compute only the median.
+ */
+@Value
+public class ProducerPriceStats {
+    String producer;
+    long count;
+    BigDecimal min;
+    BigDecimal max;
+    BigDecimal avg;
+    BigDecimal median;
+    BigDecimal p90;
+    BigDecimal p99;
+}
@@ -17,4 +17,9 @@ public class Product {
     private BigDecimal price;
     private LocalDate expirationDate;
     private LocalDateTime creationTime;
+    /**
+     * Row version for optimistic concurrency control, it's incremented by every update. {@code null} means the
+     * version is unknown, and such product is updated without a version check.
+     */
+    private Long version;
 }
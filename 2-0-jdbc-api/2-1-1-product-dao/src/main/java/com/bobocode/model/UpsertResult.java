@@ -0,0 +1,12 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+/**
+ * {@link UpsertResult} tells how many rows of an upsert were inserted and how many were updated
+ */
+@Value
+public class UpsertResult {
+    int inserted;
+    int updated;
+}
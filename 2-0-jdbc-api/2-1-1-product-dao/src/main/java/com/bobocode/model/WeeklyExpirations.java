@@ -0,0 +1,15 @@
+package com.bobocode.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * {@link WeeklyExpirations} is a bucket of the expiration histogram: the number of products that expire within the
+ * week starting on Monday {@code weekStart}
+ */
+@Value
+public class WeeklyExpirations {
+    LocalDate weekStart;
+    long count;
+}
@@ -1,5 +1,6 @@
 package com.bobocode;
 
+import com.bobocode.dao.ProductDao;
 import com.bobocode.exception.DaoOperationException;
 import com.bobocode.model.Product;
 import com.bobocode.util.FileReader;
@@ -38,6 +39,38 @@ abstract class AbstractDaoTest {
         }
     }
 
+    /**
+     * Same as {@link #findProductById(Long, Connection)}, but also reads the version of the product
+     */
+    Product findVersionedProductById(Long id, Connection connection) throws SQLException {
+        PreparedStatement selectByIdStatement = prepareSelectByIdStatement(id, connection);
+        ResultSet resultSet = selectByIdStatement.executeQuery();
+        if (resultSet.next()) {
+            Product product = parseRow(resultSet);
+            product.setVersion(resultSet.getLong("version"));
+            return product;
+        } else {
+            throw new DaoOperationException(String.format("Product with id = %d does not exist", id));
+        }
+    }
+
+    /**
+     * Reads the stored state of a product, including its version, in a connection of its own
+     */
+    Product findStored(Product product, DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return findVersionedProductById(product.getId(), connection);
+        }
+    }
+
+    /**
+     * Copies every field of a product, so the copy can serve as the original of a partial update
+     */
+    static Product copyOf(Product product) {
+        return new Product(product.getId(), product.getName(), product.getProducer(), product.getPrice(),
+                product.getExpirationDate(), product.getCreationTime(), product.getVersion());
+    }
+
     private Product parseRow(ResultSet resultSet) {
         try {
             return createFromResultSet(resultSet);
@@ -66,13 +99,37 @@ abstract class AbstractDaoTest {
         return products;
     }
 
-    void saveProduct(Product product, Connection connection) throws SQLException {
+    static void saveProduct(Product product, Connection connection) throws SQLException {
         PreparedStatement insertStatement = prepareInsertStatement(product, connection);
         insertStatement.executeUpdate();
         Long id = fetchGeneratedId(insertStatement);
         product.setId(id);
     }
 
+    static List<Product> givenStoredProducts(DataSource dataSource) throws SQLException {
+        return givenStoredProducts(createTestProductList(), dataSource);
+    }
+
+    static List<Product> givenStoredProducts(List<Product> products, DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (Product product : products) {
+                saveProduct(product, connection);
+            }
+        }
+        return products;
+    }
+
+    static Product givenStoredProduct(ProductDao productDao) {
+        Product product = Product.builder()
+                .name("Sprite")
+                .producer("The Coca-Cola Company")
+                .price(BigDecimal.TEN)
+                .expirationDate(LocalDate.of(2030, 1, 1))
+                .build();
+        productDao.saveAll(List.of(product));
+        return product;
+    }
+
     private PreparedStatement prepareSelectByIdStatement(Long id, Connection connection) {
         try {
             PreparedStatement selectByIdStatement = connection
@@ -84,7 +141,7 @@ abstract class AbstractDaoTest {
         }
     }
 
-    private PreparedStatement prepareInsertStatement(Product product, Connection connection) {
+    private static PreparedStatement prepareInsertStatement(Product product, Connection connection) {
         try {
             PreparedStatement insertStatement = connection
                     .prepareStatement("INSERT INTO products(name, producer, price, expiration_date) VALUES (?, ?, ?, ?);",
@@ -96,14 +153,14 @@ abstract class AbstractDaoTest {
         }
     }
 
-    private void fillProductStatement(Product product, PreparedStatement updateStatement) throws SQLException {
+    private static void fillProductStatement(Product product, PreparedStatement updateStatement) throws SQLException {
         updateStatement.setString(1, product.getName());
         updateStatement.setString(2, product.getProducer());
         updateStatement.setBigDecimal(3, product.getPrice());
         updateStatement.setDate(4, Date.valueOf(product.getExpirationDate()));
     }
 
-    private Long fetchGeneratedId(PreparedStatement insertStatement) throws SQLException {
+    private static Long fetchGeneratedId(PreparedStatement insertStatement) throws SQLException {
         ResultSet generatedKeys = insertStatement.getGeneratedKeys();
         if (generatedKeys.next()) {
             return generatedKeys.getLong(1);
@@ -112,7 +169,7 @@ abstract class AbstractDaoTest {
         }
     }
 
-    List<Product> createTestProductList() {
+    static List<Product> createTestProductList() {
         return List.of(
                 Product.builder()
                         .name("Sprite")
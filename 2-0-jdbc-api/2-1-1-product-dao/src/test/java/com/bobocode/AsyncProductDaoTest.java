@@ -0,0 +1,87 @@
+package com.bobocode;
+
+import com.bobocode.dao.AsyncProductDao;
+import com.bobocode.dao.ProductDao;
+import com.bobocode.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+class AsyncProductDaoTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ProductDao delegate;
+
+    @BeforeEach
+    void createDelegate() {
+        delegate = Mockito.mock(ProductDao.class);
+        when(delegate.findOne(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            if (id < 0) {
+                release.await();
+            }
+            return Product.builder().id(id).build();
+        });
+    }
+
+    @AfterEach
+    void releaseBlockedCalls() {
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Lookups fan out concurrently and complete with results")
+    void lookupsCompleteConcurrently() {
+        try (AsyncProductDao productDao = new AsyncProductDao(delegate, 4, 10, Duration.ofSeconds(5))) {
+            List<CompletableFuture<Product>> futures = LongStream.rangeClosed(1, 8)
+                    .mapToObj(productDao::findOne)
+                    .collect(Collectors.toList());
+
+            assertThat(futures.stream().map(CompletableFuture::join).map(Product::getId))
+                    .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        }
+    }
+
+    @Test
+    @DisplayName("Operations are rejected when the queue is full")
+    void operationsAreRejectedWhenQueueIsFull() {
+        try (AsyncProductDao productDao = new AsyncProductDao(delegate, 1, 1, Duration.ofSeconds(5))) {
+            productDao.findOne(-1L);
+            productDao.findOne(-2L);
+
+            CompletableFuture<Product> rejected = productDao.findOne(3L);
+
+            assertThat(rejected).isCompletedExceptionally();
+            assertThat(rejected.handle((product, error) -> error).join())
+                    .isInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Timed out operations fail and queued ones are cancelled")
+    void operationsTimeOut() {
+        try (AsyncProductDao productDao = new AsyncProductDao(delegate, 1, 10, Duration.ofSeconds(5))) {
+            AsyncProductDao fastFailingDao = productDao.withTimeout(Duration.ofMillis(50));
+            CompletableFuture<Product> blocked = fastFailingDao.findOne(-1L);
+            CompletableFuture<Product> queued = fastFailingDao.findOne(2L);
+
+            assertThat(blocked.handle((product, error) -> error).join()).isInstanceOf(TimeoutException.class);
+            assertThat(queued.handle((product, error) -> error).join()).isInstanceOf(TimeoutException.class);
+            assertThat(productDao.getQueuedOperations()).isZero();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bobocode;
+
+import com.bobocode.dao.CachingProductDao;
+import com.bobocode.dao.ProductDao;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.CacheStats;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingProductDaoTest {
+    private static final long MISSING_ID = 404L;
+
+    private ProductDao delegate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createDelegate() {
+        delegate = Mockito.mock(ProductDao.class);
+        when(delegate.findAllByIds(any())).thenAnswer(invocation -> {
+            Long id = ((Collection<Long>) invocation.getArgument(0)).iterator().next();
+            return id == MISSING_ID
+                    ? new MultiGetResult<Product>(Map.of(), Set.of(id))
+                    : new MultiGetResult<>(Map.of(id, Product.builder().id(id).name("product " + id).build()), Set.of());
+        });
+    }
+
+    @Test
+    @DisplayName("findOne loads a product once and then returns copies from the cache")
+    void findOneCachesProducts() {
+        CachingProductDao productDao = new CachingProductDao(delegate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        Product first = productDao.findOne(1L);
+        first.setName("changed by caller");
+        Product second = productDao.findOne(1L);
+
+        assertThat(second.getName()).isEqualTo("product 1");
+        verify(delegate, times(1)).findAllByIds(any());
+        CacheStats stats = productDao.getStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("findOne caches missing ids")
+    void findOneCachesMissingIds() {
+        CachingProductDao productDao = new CachingProductDao(delegate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() -> productDao.findOne(MISSING_ID));
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() -> productDao.findOne(MISSING_ID));
+
+        verify(delegate, times(1)).findAllByIds(any());
+    }
+
+    @Test
+    @DisplayName("update and remove invalidate cached products")
+    void writesInvalidateCache() {
+        CachingProductDao productDao = new CachingProductDao(delegate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        Product product = productDao.findOne(1L);
+
+        productDao.update(product);
+        productDao.findOne(1L);
+        productDao.remove(product);
+        productDao.findOne(1L);
+
+        verify(delegate, times(3)).findAllByIds(any());
+    }
+
+    @Test
+    @DisplayName("A failed write of a product without id keeps the error of the delegate")
+    void writesOfProductWithoutIdKeepDelegateError() {
+        CachingProductDao productDao = new CachingProductDao(delegate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        Product product = Product.builder().name("no id").build();
+        doThrow(new DaoOperationException("Cannot update product without id")).when(delegate).update(product);
+        doThrow(new DaoOperationException("Cannot update product without id")).when(delegate).update(product, product);
+        doThrow(new DaoOperationException("Cannot remove product without id")).when(delegate).remove(product);
+        when(delegate.upsertAll(any())).thenThrow(new IllegalArgumentException("Product without id cannot be upserted"));
+
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() -> productDao.update(product));
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() -> productDao.update(product, product));
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() -> productDao.remove(product));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> productDao.upsertAll(List.of(product)));
+    }
+
+    @Test
+    @DisplayName("Cache evicts entries above max size and expires entries after TTL")
+    void cacheIsBoundedAndExpires() throws InterruptedException {
+        CachingProductDao productDao = new CachingProductDao(delegate, 2, Duration.ofMillis(50), Duration.ofMillis(50));
+
+        productDao.findOne(1L);
+        productDao.findOne(2L);
+        productDao.findOne(3L);
+        assertThat(productDao.getStats().getSize()).isEqualTo(2);
+        assertThat(productDao.getStats().getEvictions()).isEqualTo(1);
+
+        Thread.sleep(100);
+        productDao.findOne(3L);
+        assertThat(productDao.getStats().getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Concurrent loads never leave a stale product in the cache after an update")
+    @SuppressWarnings("unchecked")
+    void concurrentUpdatesDoNotLeaveStaleProducts() throws Exception {
+        Map<Long, String> names = new ConcurrentHashMap<>();
+        ProductDao storage = Mockito.mock(ProductDao.class);
+        when(storage.findAllByIds(any())).thenAnswer(invocation -> {
+            Long id = ((Collection<Long>) invocation.getArgument(0)).iterator().next();
+            return new MultiGetResult<>(Map.of(id, Product.builder().id(id).name(names.get(id)).build()), Set.of());
+        });
+        doAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            names.put(product.getId(), product.getName());
+            return null;
+        }).when(storage).update(any(Product.class));
+        LongStream.rangeClosed(1, 4).forEach(id -> names.put(id, "initial"));
+        CachingProductDao productDao = new CachingProductDao(storage, 2, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+
+        List<Future<?>> readers = IntStream.range(0, 4).mapToObj(reader -> executor.submit(() -> {
+            while (writing.get()) {
+                LongStream.rangeClosed(1, 4).forEach(productDao::findOne);
+            }
+        })).collect(Collectors.toList());
+        List<Future<?>> writers = IntStream.range(0, 2).mapToObj(writer -> executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                productDao.update(Product.builder().id(1L + i % 4).name("writer " + writer + " #" + i).build());
+            }
+        })).collect(Collectors.toList());
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        LongStream.rangeClosed(1, 4).forEach(id ->
+                assertThat(productDao.findOne(id).getName()).isEqualTo(names.get(id)));
+        assertThat(productDao.getStats().getSize()).isLessThanOrEqualTo(2);
+    }
+}
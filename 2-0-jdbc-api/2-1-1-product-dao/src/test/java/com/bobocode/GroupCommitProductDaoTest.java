@@ -0,0 +1,165 @@
+package com.bobocode;
+
+import com.bobocode.dao.GroupCommitProductDao;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.exception.OptimisticLockException;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitProductDaoTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private GroupCommitProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:group_commit_db;DB_CLOSE_DELAY=-1", "sa", "");
+        createTable(dataSource);
+    }
+
+    @BeforeEach
+    void createDao() {
+        productDao = new GroupCommitProductDao(dataSource, 50, Duration.ofMillis(20), 1000);
+    }
+
+    @AfterEach
+    void closeDao() {
+        productDao.close();
+    }
+
+    @Test
+    @DisplayName("Concurrent saves are committed in shared transactions")
+    void concurrentSavesAreCoalesced() throws SQLException {
+        List<Product> products = IntStream.range(0, 100)
+                .mapToObj(i -> createProduct("coalesced-" + i))
+                .collect(Collectors.toList());
+
+        List<CompletableFuture<Long>> futures = products.stream()
+                .map(productDao::saveAsync)
+                .collect(Collectors.toList());
+        List<Long> ids = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+        assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(products).extracting(Product::getId).containsExactlyElementsOf(ids);
+        assertThat(productDao.getCommittedWrites()).isEqualTo(100);
+        assertThat(productDao.getCommittedGroups()).isLessThan(100);
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(findProductById(ids.get(99), connection).getName()).isEqualTo("coalesced-99");
+        }
+    }
+
+    @Test
+    @DisplayName("A failed write fails only its own caller")
+    void failedWriteFailsOnlyItsCaller() throws SQLException {
+        Product product = createProduct("original");
+        productDao.save(product);
+        Product staleCopy = findStored(product, dataSource);
+        product.setName("first writer");
+        productDao.update(product);
+
+        staleCopy.setName("second writer");
+        Product invalidProduct = createProduct(null);
+        Product validProduct = createProduct("valid");
+        CompletableFuture<Void> staleUpdate = productDao.updateAsync(staleCopy);
+        CompletableFuture<Long> invalidSave = productDao.saveAsync(invalidProduct);
+        CompletableFuture<Long> validSave = productDao.saveAsync(validProduct);
+
+        assertThatThrownBy(staleUpdate::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(OptimisticLockException.class);
+        assertThatThrownBy(invalidSave::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DaoOperationException.class);
+        assertThat(validSave.join()).isNotNull();
+        assertThat(invalidProduct.getId()).isNull();
+        assertThat(staleCopy.getVersion()).isZero();
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(findProductById(product.getId(), connection).getName()).isEqualTo("first writer");
+            assertThat(findProductById(validProduct.getId(), connection).getName()).isEqualTo("valid");
+        }
+    }
+
+    @Test
+    @DisplayName("Blocking update throws the same exception as a direct update")
+    void blockingUpdateThrowsCause() throws SQLException {
+        Product product = createProduct("blocking");
+        productDao.save(product);
+        Product staleCopy = findStored(product, dataSource);
+        productDao.update(product);
+
+        assertThat(product.getVersion()).isEqualTo(1);
+        assertThatThrownBy(() -> productDao.update(staleCopy)).isInstanceOf(OptimisticLockException.class);
+    }
+
+    @Test
+    @DisplayName("Queued writes are committed on close, and later writes are rejected")
+    void closeCommitsQueuedWrites() {
+        CompletableFuture<Long> queued = productDao.saveAsync(createProduct("queued"));
+
+        productDao.close();
+
+        assertThat(queued).isCompletedWithValueMatching(id -> id != null);
+        assertThatThrownBy(() -> productDao.save(createProduct("late")))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    @DisplayName("Writes racing with close are either committed or rejected")
+    void writesRacingWithCloseComplete() throws Exception {
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<List<CompletableFuture<Long>>>> submitted = IntStream.range(0, 4)
+                .mapToObj(thread -> submitters.submit(() -> {
+                    started.countDown();
+                    return IntStream.range(0, 200)
+                            .mapToObj(i -> productDao.saveAsync(createProduct("racing-" + thread + "-" + i)))
+                            .collect(Collectors.toList());
+                }))
+                .collect(Collectors.toList());
+        started.await();
+
+        productDao.close();
+
+        for (Future<List<CompletableFuture<Long>>> futures : submitted) {
+            for (CompletableFuture<Long> future : futures.get(5, TimeUnit.SECONDS)) {
+                Throwable error = future.handle((id, e) -> e).get(5, TimeUnit.SECONDS);
+                assertThat(error).satisfiesAnyOf(
+                        e -> assertThat(e).isNull(),
+                        e -> assertThat(e).isInstanceOf(RejectedExecutionException.class));
+            }
+        }
+        submitters.shutdown();
+    }
+
+    private Product createProduct(String name) {
+        return Product.builder()
+                .name(name)
+                .producer("Group commit producer")
+                .price(BigDecimal.TEN)
+                .expirationDate(LocalDate.of(2030, 1, 1))
+                .build();
+    }
+}
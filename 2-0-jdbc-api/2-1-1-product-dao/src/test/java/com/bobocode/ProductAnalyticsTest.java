@@ -0,0 +1,86 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductAnalytics;
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.ProducerInventoryValue;
+import com.bobocode.model.ProducerPriceStats;
+import com.bobocode.model.Product;
+import com.bobocode.model.WeeklyExpirations;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductAnalyticsTest extends AbstractDaoTest {
+    private static ProductAnalytics analytics;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        DataSource dataSource = JdbcUtil.createInMemoryH2DataSource(
+                "jdbc:h2:mem:product_analytics_db;DB_CLOSE_DELAY=-1", "sa", "");
+        createTable(dataSource);
+        ProductDao productDao = new ProductDaoImpl(dataSource);
+        productDao.saveAll(List.of(
+                product("Nestle", "10", LocalDate.of(2025, 1, 6)),
+                product("Nestle", "20", LocalDate.of(2025, 1, 12)),
+                product("Nestle", "60", LocalDate.of(2025, 1, 13)),
+                product("Danone", "15", LocalDate.of(2025, 1, 20)),
+                product("Danone", "25", LocalDate.of(2025, 3, 1))));
+        analytics = new ProductAnalytics(dataSource);
+    }
+
+    @Test
+    @DisplayName("Price statistics are computed per producer")
+    void priceStatsByProducer() {
+        List<ProducerPriceStats> stats = analytics.findPriceStatsByProducer();
+
+        assertThat(stats).extracting(ProducerPriceStats::getProducer).containsExactly("Danone", "Nestle");
+        ProducerPriceStats nestle = stats.get(1);
+        assertThat(nestle.getCount()).isEqualTo(3);
+        assertThat(nestle.getMin()).isEqualByComparingTo("10");
+        assertThat(nestle.getMax()).isEqualByComparingTo("60");
+        assertThat(nestle.getAvg()).isEqualByComparingTo("30");
+        assertThat(nestle.getMedian()).isEqualByComparingTo("20");
+    }
+
+    @Test
+    @DisplayName("Expirations are counted by weeks starting on Monday")
+    void expirationsByWeek() {
+        List<WeeklyExpirations> histogram = analytics.countExpirationsByWeek(
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1));
+
+        assertThat(histogram).containsExactly(
+                new WeeklyExpirations(LocalDate.of(2025, 1, 6), 2),
+                new WeeklyExpirations(LocalDate.of(2025, 1, 13), 1),
+                new WeeklyExpirations(LocalDate.of(2025, 1, 20), 1));
+    }
+
+    @Test
+    @DisplayName("Top producers are ordered by total price")
+    void topProducersByInventoryValue() {
+        List<ProducerInventoryValue> producers = analytics.findTopProducersByInventoryValue(1);
+
+        assertThat(producers).hasSize(1);
+        assertThat(producers.get(0).getProducer()).isEqualTo("Nestle");
+        assertThat(producers.get(0).getCount()).isEqualTo(3);
+        assertThat(producers.get(0).getTotalValue()).isEqualByComparingTo("90");
+    }
+
+    private static Product product(String producer, String price, LocalDate expirationDate) {
+        return Product.builder()
+                .name("Yogurt")
+                .producer(producer)
+                .price(new BigDecimal(price))
+                .expirationDate(expirationDate)
+                .build();
+    }
+}
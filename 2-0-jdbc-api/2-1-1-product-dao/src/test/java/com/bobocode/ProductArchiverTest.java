@@ -0,0 +1,141 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductArchiver;
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.ArchiveProgress;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductArchiverTest extends AbstractDaoTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 1);
+
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource(
+                "jdbc:h2:mem:product_archive_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+    }
+
+    @BeforeEach
+    void cleanUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE TABLE products");
+            statement.executeUpdate("TRUNCATE TABLE products_archive");
+        }
+    }
+
+    @Test
+    @DisplayName("Expired products are moved to the archive in chunks")
+    void expiredProductsAreArchivedInChunks() throws SQLException {
+        List<Product> products = givenStoredProducts(
+                TODAY.minusDays(3), TODAY.plusDays(1), TODAY.minusDays(2), TODAY.minusDays(1), TODAY.plusDays(2));
+        List<ArchiveProgress> reports = new ArrayList<>();
+
+        ArchiveProgress progress = new ProductArchiver(dataSource, 2, Duration.ZERO)
+                .archiveExpired(TODAY, reports::add);
+
+        assertThat(progress.isCompleted()).isTrue();
+        assertThat(progress.getArchivedRows()).isEqualTo(3);
+        assertThat(progress.getChunks()).isEqualTo(2);
+        assertThat(progress.getCheckpoint()).isNotNull();
+        assertThat(reports.get(1).getCheckpoint()).isEqualTo(progress.getCheckpoint());
+        assertThat(reports).extracting(ArchiveProgress::getArchivedRows).containsExactly(2L, 3L);
+        assertThat(count("products")).isEqualTo(2);
+        assertThat(count("products_archive")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A run resumed from a checkpoint archives only products after it")
+    void runIsResumedFromCheckpoint() throws SQLException {
+        givenStoredProducts(TODAY.minusDays(1), TODAY.minusDays(3), TODAY.minusDays(2));
+        ProductArchiver archiver = new ProductArchiver(dataSource, 1, Duration.ofSeconds(10));
+        Thread.currentThread().interrupt();
+        ArchiveProgress firstRun = archiver.archiveExpired(TODAY, p -> {
+        });
+        assertThat(Thread.interrupted()).isTrue();
+
+        ArchiveProgress progress = new ProductArchiver(dataSource, 10, Duration.ZERO)
+                .archiveExpired(TODAY, firstRun.getCheckpoint(), p -> {
+                });
+
+        assertThat(progress.getArchivedRows()).isEqualTo(2);
+        assertThat(count("products")).isZero();
+        assertThat(count("products_archive")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Chunks are read by the (expiration_date, id) index")
+    void chunksAreReadByIndex() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("EXPLAIN SELECT id, expiration_date FROM products " +
+                    "WHERE expiration_date < DATE '2025-01-01' AND expiration_date >= TIMESTAMP '2024-01-01 00:00:00' " +
+                    "AND (expiration_date > TIMESTAMP '2024-01-01 00:00:00' OR id > 10) " +
+                    "ORDER BY expiration_date, id LIMIT 100 FOR UPDATE");
+            resultSet.next();
+            assertThat(resultSet.getString(1))
+                    .contains("PRODUCTS_EXPIRATION_DATE_ID_IDX")
+                    .contains("index sorted");
+        }
+    }
+
+    @Test
+    @DisplayName("An interrupted run stops after the current chunk")
+    void interruptedRunStopsAfterChunk() throws SQLException {
+        givenStoredProducts(TODAY.minusDays(3), TODAY.minusDays(2), TODAY.minusDays(1));
+        ProductArchiver archiver = new ProductArchiver(dataSource, 1, Duration.ofSeconds(10));
+
+        Thread.currentThread().interrupt();
+        ArchiveProgress progress = archiver.archiveExpired(TODAY, p -> {
+        });
+
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(progress.isCompleted()).isFalse();
+        assertThat(progress.getArchivedRows()).isEqualTo(1);
+        assertThat(archiver.getLastProgress()).isEqualTo(progress);
+        assertThat(count("products_archive")).isEqualTo(1);
+    }
+
+    private List<Product> givenStoredProducts(LocalDate... expirationDates) {
+        List<Product> products = new ArrayList<>();
+        for (LocalDate expirationDate : expirationDates) {
+            products.add(Product.builder()
+                    .name("Milk")
+                    .producer("Farm")
+                    .price(BigDecimal.ONE)
+                    .expirationDate(expirationDate)
+                    .build());
+        }
+        productDao.saveAll(products);
+        return products;
+    }
+
+    private long count(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + table);
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
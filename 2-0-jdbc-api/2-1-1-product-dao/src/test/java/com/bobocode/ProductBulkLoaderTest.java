@@ -0,0 +1,117 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductBulkLoader;
+import com.bobocode.exception.DaoOperationException;
+import com.bobocode.model.LoadProgress;
+import com.bobocode.model.LoadProgress.Stage;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductBulkLoaderTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:product_bulk_load_db;DB_CLOSE_DELAY=-1", "sa", "");
+        createTable(dataSource);
+    }
+
+    @AfterEach
+    void reset() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE TABLE products");
+        }
+    }
+
+    @Test
+    @DisplayName("load streams CSV rows into the products table and reports progress")
+    void loadCsv() throws SQLException {
+        StringBuilder csv = new StringBuilder("name,producer,price,expiration_date\n");
+        for (int i = 1; i <= 250; i++) {
+            csv.append(String.format("\"product, %d\",producer,%d.5,2030-01-%02d%n", i, i, i % 28 + 1));
+        }
+        List<LoadProgress> reports = new ArrayList<>();
+
+        LoadProgress result = new ProductBulkLoader(dataSource, ',', 100).load(new StringReader(csv.toString()),
+                reports::add);
+
+        assertThat(result.getRows()).isEqualTo(250);
+        assertThat(reports).extracting(LoadProgress::getRows).containsExactly(100L, 200L, 250L);
+        assertThat(reports).extracting(LoadProgress::getStage)
+                .containsExactly(Stage.SPOOLING, Stage.SPOOLING, Stage.LOADED);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            List<Product> products = collectToList(statement.executeQuery("SELECT * FROM products ORDER BY id"));
+            assertThat(products).hasSize(250);
+            assertThat(products.get(0).getName()).isEqualTo("product, 1");
+            assertThat(products.get(0).getPrice()).isEqualByComparingTo("1.5");
+            assertThat(products.get(0).getExpirationDate()).isEqualTo(LocalDate.of(2030, 1, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("load supports TSV sources with columns in any order")
+    void loadTsv() {
+        String tsv = "expiration_date\tname\tproducer\tprice\n" +
+                "2030-05-01\tSprite\tThe Coca-Cola Company\t18\n" +
+                "2030-06-01\tSnickers\tMars Inc.\t16\n";
+
+        LoadProgress result = new ProductBulkLoader(dataSource, '\t', 100).load(new StringReader(tsv),
+                progress -> {
+                });
+
+        assertThat(result.getRows()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("load rejects unknown columns")
+    void loadRejectsUnknownColumns() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new ProductBulkLoader(dataSource)
+                .load(new StringReader("name,color\nSprite,green\n"), progress -> {
+                }));
+    }
+
+    @Test
+    @DisplayName("load rejects databases other than PostgreSQL and embedded H2")
+    void loadRejectsUnsupportedDatabases() throws SQLException {
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() ->
+                new ProductBulkLoader(mockDataSource("MySQL", "jdbc:mysql://localhost/products"))
+                        .load(new StringReader("name\nSprite\n"), progress -> {
+                        }));
+        assertThatExceptionOfType(DaoOperationException.class).isThrownBy(() ->
+                new ProductBulkLoader(mockDataSource("H2", "jdbc:h2:tcp://localhost/products"))
+                        .load(new StringReader("name\nSprite\n"), progress -> {
+                        }));
+    }
+
+    private static DataSource mockDataSource(String productName, String url) throws SQLException {
+        DataSource mockDataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(mockDataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn(productName);
+        when(metaData.getURL()).thenReturn(url);
+        return mockDataSource;
+    }
+}
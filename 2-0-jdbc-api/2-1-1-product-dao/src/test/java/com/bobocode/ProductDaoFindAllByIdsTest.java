@@ -0,0 +1,61 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.MultiGetResult;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDaoFindAllByIdsTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+    private static List<Product> storedProducts;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:product_multi_get_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+        storedProducts = givenStoredProducts(dataSource);
+    }
+
+    @Test
+    @DisplayName("findAllByIds returns products keyed by id in the requested order")
+    void findAllByIdsReturnsProductsKeyedById() {
+        Long firstId = storedProducts.get(0).getId();
+        Long lastId = storedProducts.get(2).getId();
+
+        MultiGetResult<Product> result = productDao.findAllByIds(Arrays.asList(lastId, null, firstId, lastId));
+
+        assertThat(result.getFound()).containsOnlyKeys(lastId, firstId);
+        assertThat(result.getFound().keySet()).containsExactly(lastId, firstId);
+        assertThat(result.getFound().get(firstId).getName()).isEqualTo(storedProducts.get(0).getName());
+        assertThat(result.getMissingIds()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findAllByIds handles more ids than one chunk and reports missing ones")
+    void findAllByIdsReportsMissingIds() {
+        List<Long> ids = new ArrayList<>(storedProducts.stream().map(Product::getId).collect(Collectors.toList()));
+        List<Long> missingIds = LongStream.rangeClosed(100_000, 102_000).boxed().collect(Collectors.toList());
+        ids.addAll(missingIds);
+
+        MultiGetResult<Product> result = productDao.findAllByIds(ids);
+
+        assertThat(result.getFound()).hasSize(storedProducts.size());
+        assertThat(result.getMissingIds()).containsExactlyElementsOf(missingIds);
+    }
+}
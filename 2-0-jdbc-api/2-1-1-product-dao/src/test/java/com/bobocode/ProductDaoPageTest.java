@@ -0,0 +1,98 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.Page;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ProductDaoPageTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+    private static List<Product> storedProducts;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:product_page_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+        storedProducts = givenStoredProducts();
+    }
+
+    @Test
+    @DisplayName("findPage walks through all products ordered by id")
+    void findPageWalksThroughAllProducts() {
+        List<Page<Product>> pages = new ArrayList<>();
+        Page<Product> page = productDao.findPage(null, 3);
+        pages.add(page);
+        while (page.hasNext()) {
+            page = productDao.findPage(Long.valueOf(page.getNextPageToken()), 3);
+            pages.add(page);
+        }
+
+        assertThat(pages).extracting(p -> p.getItems().size()).containsExactly(3, 3, 1);
+        assertThat(collectIds(pages)).containsExactlyElementsOf(storedProducts.stream()
+                .map(Product::getId).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("findPageByExpirationDate walks through all products ordered by expiration date and id")
+    void findPageByExpirationDateWalksThroughAllProducts() {
+        List<Page<Product>> pages = new ArrayList<>();
+        Page<Product> page = productDao.findPageByExpirationDate(null, 2);
+        pages.add(page);
+        while (page.hasNext()) {
+            page = productDao.findPageByExpirationDate(page.getNextPageToken(), 2);
+            pages.add(page);
+        }
+
+        assertThat(pages).hasSize(4);
+        assertThat(collectIds(pages)).containsExactlyElementsOf(storedProducts.stream()
+                .sorted(Comparator.comparing(Product::getExpirationDate).thenComparing(Product::getId))
+                .map(Product::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("findPageByExpirationDate rejects a malformed token")
+    void findPageByExpirationDateRejectsMalformedToken() {
+        assertThatIllegalArgumentException().isThrownBy(() -> productDao.findPageByExpirationDate("not a token", 2));
+    }
+
+    private static List<Long> collectIds(List<Page<Product>> pages) {
+        return pages.stream()
+                .flatMap(page -> page.getItems().stream())
+                .map(Product::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Product> givenStoredProducts() throws SQLException {
+        LocalDate[] expirationDates = {LocalDate.of(2030, 5, 1), LocalDate.of(2030, 1, 1), LocalDate.of(2030, 5, 1),
+                LocalDate.of(2029, 12, 31), LocalDate.of(2030, 1, 1), LocalDate.of(2030, 5, 1), LocalDate.of(2031, 1, 1)};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < expirationDates.length; i++) {
+            products.add(Product.builder()
+                    .name("product " + i)
+                    .producer("producer")
+                    .price(BigDecimal.TEN)
+                    .expirationDate(expirationDates[i])
+                    .build());
+        }
+        return givenStoredProducts(products, dataSource);
+    }
+}
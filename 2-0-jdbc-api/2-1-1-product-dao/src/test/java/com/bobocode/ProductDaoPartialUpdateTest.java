@@ -0,0 +1,80 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ProductDaoPartialUpdateTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource(
+                "jdbc:h2:mem:product_partial_update_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+    }
+
+    @Test
+    @DisplayName("update with an original product writes only changed columns")
+    void updateWritesOnlyChangedColumns() throws SQLException {
+        Product product = givenStoredProduct(productDao);
+        Product original = copyOf(product);
+        renameInDatabase(product.getId(), "Renamed concurrently");
+        product.setVersion(null);
+        product.setPrice(BigDecimal.valueOf(25));
+
+        productDao.update(original, product);
+
+        Product stored = findStored(product, dataSource);
+        assertThat(stored.getName()).isEqualTo("Renamed concurrently");
+        assertThat(stored.getPrice()).isEqualByComparingTo("25");
+        assertThat(stored.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("update with an original product writes nothing when no field has changed")
+    void updateWithoutChangesWritesNothing() throws SQLException {
+        Product product = givenStoredProduct(productDao);
+        Product original = copyOf(product);
+        product.setPrice(new BigDecimal("10.00"));
+
+        productDao.update(original, product);
+
+        assertThat(product.getVersion()).isZero();
+        assertThat(findStored(product, dataSource).getVersion()).isZero();
+    }
+
+    @Test
+    @DisplayName("update with an original product rejects a product with another id")
+    void updateRejectsAnotherProduct() {
+        Product product = givenStoredProduct(productDao);
+        Product another = givenStoredProduct(productDao);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> productDao.update(product, another));
+    }
+
+    private void renameInDatabase(Long id, String name) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "UPDATE products SET name = ?, version = version + 1 WHERE id = ?")) {
+            statement.setString(1, name);
+            statement.setLong(2, id);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.IdAllocator;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.exception.BatchSaveException;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.id.BlockIdAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class ProductDaoSaveAllTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:product_save_all_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource, 2);
+        createTable(dataSource);
+    }
+
+    @AfterEach
+    void reset() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE TABLE products");
+        }
+    }
+
+    @Test
+    @DisplayName("saveAll stores products in batches and returns generated ids")
+    void saveAllStoresProducts() throws SQLException {
+        List<Product> products = createProducts(5);
+
+        List<Long> ids = productDao.saveAll(products);
+
+        assertThat(ids).hasSize(5).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(products).extracting(Product::getId).containsExactlyElementsOf(ids);
+        try (Connection connection = dataSource.getConnection()) {
+            for (Product product : products) {
+                assertThat(findProductById(product.getId(), connection).getName()).isEqualTo(product.getName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("saveAll reports exactly which products failed and saves the others")
+    void saveAllReportsFailedRows() throws SQLException {
+        List<Product> products = createProducts(5);
+        products.get(2).setName(null);
+        products.get(4).setExpirationDate(null);
+
+        BatchSaveException exception = catchThrowableOfType(() -> productDao.saveAll(products),
+                BatchSaveException.class);
+
+        assertThat(exception.getFailedRows()).extracting(BatchSaveException.FailedRow::getIndex)
+                .containsExactly(2, 4);
+        assertThat(exception.getFailedRows()).extracting(BatchSaveException.FailedRow::getProduct)
+                .containsExactly(products.get(2), products.get(4));
+        assertThat(products).extracting(Product::getId).filteredOn(id -> id != null).hasSize(3);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            assertThat(collectToList(statement.executeQuery("SELECT * FROM products ORDER BY id")))
+                    .extracting(Product::getName)
+                    .containsExactly("product 0", "product 1", "product 3");
+        }
+    }
+
+    @Test
+    @DisplayName("saveAll with an id allocator inserts products with client-side ids")
+    void saveAllUsesAllocatedIds() throws SQLException {
+        BlockIdAllocator idAllocator = new BlockIdAllocator(dataSource, "products", 3);
+        ProductDao allocatingDao = new ProductDaoImpl(dataSource, 2, IdAllocator.ofBlocks(idAllocator));
+        List<Product> products = createProducts(5);
+        products.get(1).setName(null);
+
+        catchThrowableOfType(() -> allocatingDao.saveAll(products), BatchSaveException.class);
+
+        assertThat(products).extracting(Product::getId).containsExactly(1L, null, 3L, 4L, 5L);
+        assertThat(idAllocator.getStats().getReservedBlocks()).isEqualTo(2);
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(findProductById(5L, connection).getName()).isEqualTo("product 4");
+        }
+    }
+
+    private static List<Product> createProducts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Product.builder()
+                        .name("product " + i)
+                        .producer("producer")
+                        .price(BigDecimal.valueOf(10 + i))
+                        .expirationDate(LocalDate.of(2030, 1, 1).plusDays(i))
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.pool.PoolConfig;
+import com.bobocode.util.pool.PooledDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDaoStreamTest extends AbstractDaoTest {
+    private static PooledDataSource dataSource;
+    private static ProductDao productDao;
+    private static List<Product> storedProducts;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createPooledH2DataSource("jdbc:h2:mem:product_stream_db;DB_CLOSE_DELAY=-1", "sa", "",
+                PoolConfig.builder().build());
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+        storedProducts = givenStoredProducts(dataSource);
+    }
+
+    @AfterAll
+    static void closeDataSource() {
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("streamAll lazily reads all products")
+    void streamAllReadsAllProducts() {
+        try (Stream<Product> products = productDao.streamAll(2)) {
+            assertThat(products.map(Product::getId).collect(Collectors.toList()))
+                    .containsExactlyInAnyOrderElementsOf(storedProducts.stream().map(Product::getId)
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("streamAll releases the connection when the stream is closed")
+    void streamAllReleasesConnectionOnClose() {
+        Stream<Product> products = productDao.streamAll(1);
+        assertThat(products.findFirst()).isPresent();
+        assertThat(dataSource.getActiveConnections()).isEqualTo(1);
+
+        products.close();
+
+        assertThat(dataSource.getActiveConnections()).isZero();
+    }
+}
@@ -0,0 +1,82 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.model.Product;
+import com.bobocode.model.UpsertResult;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ProductDaoUpsertTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:product_upsert_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource, 2);
+        createTable(dataSource);
+    }
+
+    @AfterEach
+    void reset() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE TABLE products");
+        }
+    }
+
+    @Test
+    @DisplayName("upsertAll inserts new products, updates existing ones and counts both")
+    void upsertAllInsertsAndUpdates() throws SQLException {
+        List<Product> storedProducts = givenStoredProducts(dataSource);
+        List<Product> feed = new ArrayList<>();
+        for (Product storedProduct : storedProducts) {
+            feed.add(new Product(storedProduct.getId(), storedProduct.getName(), storedProduct.getProducer(),
+                    BigDecimal.valueOf(99), storedProduct.getExpirationDate(), null, null));
+        }
+        feed.add(createProduct(1000L, "new product"));
+        feed.add(createProduct(1001L, "another new product"));
+
+        UpsertResult result = productDao.upsertAll(feed);
+
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getUpdated()).isEqualTo(storedProducts.size());
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(findProductById(storedProducts.get(0).getId(), connection).getPrice())
+                    .isEqualByComparingTo("99");
+            assertThat(findProductById(1000L, connection).getName()).isEqualTo("new product");
+        }
+    }
+
+    @Test
+    @DisplayName("upsertAll rejects products without id")
+    void upsertAllRejectsProductsWithoutId() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> productDao.upsertAll(List.of(createProduct(null, "product"))));
+    }
+
+    private static Product createProduct(Long id, String name) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .producer("producer")
+                .price(BigDecimal.ONE)
+                .expirationDate(LocalDate.of(2030, 1, 1))
+                .build();
+    }
+}
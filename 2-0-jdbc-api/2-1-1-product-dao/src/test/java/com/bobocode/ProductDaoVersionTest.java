@@ -0,0 +1,74 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.exception.OptimisticLockException;
+import com.bobocode.model.Product;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class ProductDaoVersionTest extends AbstractDaoTest {
+    private static DataSource dataSource;
+    private static ProductDao productDao;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource(
+                "jdbc:h2:mem:product_version_db;DB_CLOSE_DELAY=-1", "sa", "");
+        productDao = new ProductDaoImpl(dataSource);
+        createTable(dataSource);
+    }
+
+    @Test
+    @DisplayName("update increments the version of a product")
+    void updateIncrementsVersion() throws SQLException {
+        Product product = givenStoredProduct(productDao);
+        assertThat(product.getVersion()).isZero();
+
+        product.setPrice(BigDecimal.valueOf(20));
+        productDao.update(product);
+        product.setPrice(BigDecimal.valueOf(30));
+        productDao.update(product);
+
+        assertThat(product.getVersion()).isEqualTo(2);
+        assertThat(findStored(product, dataSource).getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("update of a stale product fails with a conflict")
+    void updateOfStaleProductFails() throws SQLException {
+        Product product = givenStoredProduct(productDao);
+        Product staleCopy = findStored(product, dataSource);
+
+        product.setName("first writer");
+        productDao.update(product);
+        staleCopy.setName("second writer");
+        OptimisticLockException exception = catchThrowableOfType(() -> productDao.update(staleCopy),
+                OptimisticLockException.class);
+
+        assertThat(exception.getExpectedVersion()).isZero();
+        assertThat(exception.getActualVersion()).isEqualTo(1);
+        assertThat(staleCopy.getVersion()).isZero();
+    }
+
+    @Test
+    @DisplayName("upsertAll increments versions of updated products")
+    void upsertAllIncrementsVersion() throws SQLException {
+        Product product = givenStoredProduct(productDao);
+        product.setVersion(null);
+
+        productDao.upsertAll(List.of(product));
+
+        assertThat(findStored(product, dataSource).getVersion()).isEqualTo(1);
+    }
+}
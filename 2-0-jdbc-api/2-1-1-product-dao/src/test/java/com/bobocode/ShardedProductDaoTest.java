@@ -0,0 +1,145 @@
+package com.bobocode;
+
+import com.bobocode.dao.ProductDao;
+import com.bobocode.dao.ProductDaoImpl;
+import com.bobocode.dao.ShardedProductDao;
+import com.bobocode.exception.BatchSaveException;
+import com.bobocode.model.Page;
+import com.bobocode.model.ProducerInventoryValue;
+import com.bobocode.model.Product;
+import com.bobocode.model.WeeklyExpirations;
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedProductDaoTest extends AbstractDaoTest {
+    private static final int SHARDS = 3;
+    private static final int PRODUCTS = 30;
+
+    private static List<DataSource> dataSources;
+    private static ShardedProductDao shardedDao;
+    private static List<Long> savedIds;
+
+    @BeforeAll
+    static void init() throws SQLException {
+        dataSources = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            DataSource dataSource = JdbcUtil.createInMemoryH2DataSource(
+                    String.format("jdbc:h2:mem:product_shard_%d_db;DB_CLOSE_DELAY=-1", i), "sa", "");
+            createTable(dataSource);
+            dataSources.add(dataSource);
+        }
+        shardedDao = new ShardedProductDao(dataSources);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(Product.builder()
+                    .name("Juice " + i)
+                    .producer(i % 3 == 0 ? "Rich" : "Sandora")
+                    .price(BigDecimal.valueOf(i % 3 == 0 ? 100 : 10))
+                    .expirationDate(LocalDate.of(2030, 1, 1).plusDays(PRODUCTS - i))
+                    .build());
+        }
+        savedIds = shardedDao.saveAll(products);
+    }
+
+    @AfterAll
+    static void close() {
+        shardedDao.close();
+    }
+
+    @Test
+    @DisplayName("Products get unique ids and are spread over all shards")
+    void productsAreSpreadOverShards() {
+        assertThat(savedIds).doesNotHaveDuplicates().hasSize(PRODUCTS);
+        int storedProducts = 0;
+        for (DataSource dataSource : dataSources) {
+            ProductDao shardDao = new ProductDaoImpl(dataSource);
+            int shardProducts = shardDao.findPage(null, PRODUCTS).getItems().size();
+            assertThat(shardProducts).isPositive();
+            storedProducts += shardProducts;
+        }
+        assertThat(storedProducts).isEqualTo(PRODUCTS);
+        assertThat(shardedDao.findAllByIds(savedIds).getFound()).hasSize(PRODUCTS);
+        assertThat(shardedDao.findOne(savedIds.get(7)).getName()).isEqualTo("Juice 7");
+    }
+
+    @Test
+    @DisplayName("A new product with an allocated id that is already stored fails instead of overwriting it")
+    void duplicateAllocatedIdFails() {
+        Long storedId = savedIds.get(0);
+        Product product = Product.builder()
+                .name("Duplicate")
+                .producer("Rich")
+                .price(BigDecimal.ONE)
+                .expirationDate(LocalDate.of(2030, 1, 1))
+                .build();
+
+        try (ShardedProductDao duplicatingDao = new ShardedProductDao(dataSources, count -> List.of(storedId),
+                ShardedProductDao.DEFAULT_VIRTUAL_NODES)) {
+            assertThatThrownBy(() -> duplicatingDao.save(product)).isInstanceOf(BatchSaveException.class);
+        }
+
+        assertThat(product.getId()).isNull();
+        assertThat(shardedDao.findOne(storedId).getName()).isEqualTo("Juice 0");
+    }
+
+    @Test
+    @DisplayName("Paging over shards keeps keyset order")
+    void pagingKeepsKeysetOrder() {
+        List<Long> pagedIds = new ArrayList<>();
+        Page<Product> page = shardedDao.findPage(null, 7);
+        pagedIds.addAll(ids(page));
+        while (page.hasNext()) {
+            page = shardedDao.findPage(Long.valueOf(page.getNextPageToken()), 7);
+            pagedIds.addAll(ids(page));
+        }
+        assertThat(pagedIds).isSorted().containsExactlyElementsOf(savedIds);
+
+        List<Product> byExpirationDate = new ArrayList<>();
+        Page<Product> expirationPage = shardedDao.findPageByExpirationDate(null, 4);
+        byExpirationDate.addAll(expirationPage.getItems());
+        while (expirationPage.hasNext()) {
+            expirationPage = shardedDao.findPageByExpirationDate(expirationPage.getNextPageToken(), 4);
+            byExpirationDate.addAll(expirationPage.getItems());
+        }
+        assertThat(byExpirationDate).hasSize(PRODUCTS).extracting(Product::getExpirationDate).isSorted();
+    }
+
+    @Test
+    @DisplayName("findAll and analytics gather results of all shards")
+    void findAllAndAnalyticsGatherShards() {
+        assertThat(ids(shardedDao.findAll())).containsExactlyElementsOf(savedIds);
+
+        List<ProducerInventoryValue> producers = shardedDao.findTopProducersByInventoryValue(2);
+        assertThat(producers).extracting(ProducerInventoryValue::getProducer).containsExactly("Rich", "Sandora");
+        assertThat(producers.get(0).getCount()).isEqualTo(10);
+        assertThat(producers.get(0).getTotalValue()).isEqualByComparingTo("1000");
+        List<WeeklyExpirations> histogram = shardedDao.countExpirationsByWeek(
+                LocalDate.of(2030, 1, 1), LocalDate.of(2031, 1, 1));
+        assertThat(histogram).extracting(WeeklyExpirations::getWeekStart).isSorted().doesNotHaveDuplicates();
+        assertThat(histogram.stream().mapToLong(WeeklyExpirations::getCount).sum()).isEqualTo(PRODUCTS);
+    }
+
+    private static List<Long> ids(Page<Product> page) {
+        return ids(page.getItems());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+    }
+}
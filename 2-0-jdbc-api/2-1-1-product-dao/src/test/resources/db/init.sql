@@ -6,7 +6,26 @@ CREATE TABLE IF NOT EXISTS products
     price           DECIMAL(19, 4),
     expiration_date TIMESTAMP    NOT NULL,
     creation_time   TIMESTAMP    NOT NULL DEFAULT now(),
+    version         BIGINT       NOT NULL DEFAULT 0,
 
     CONSTRAINT products_pk PRIMARY KEY (id)
 );
 
+CREATE INDEX IF NOT EXISTS products_expiration_date_id_idx ON products (expiration_date, id);
+CREATE INDEX IF NOT EXISTS products_producer_price_idx ON products (producer, price);
+
+CREATE SEQUENCE IF NOT EXISTS product_id_seq;
+
+CREATE TABLE IF NOT EXISTS products_archive
+(
+    id              BIGINT       NOT NULL,
+    name            VARCHAR(255) NOT NULL,
+    producer        VARCHAR(255) NOT NULL,
+    price           DECIMAL(19, 4),
+    expiration_date TIMESTAMP    NOT NULL,
+    creation_time   TIMESTAMP    NOT NULL,
+    version         BIGINT       NOT NULL,
+    archived_at     TIMESTAMP    NOT NULL,
+
+    CONSTRAINT products_archive_pk PRIMARY KEY (id)
+);
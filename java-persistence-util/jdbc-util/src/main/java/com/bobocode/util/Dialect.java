@@ -0,0 +1,30 @@
+package com.bobocode.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link Dialect} tells which database is behind a connection, so that jdbc-util can use database specific SQL
+ * (e.g. advisory locks or upserts) where it matters.
+ */
+public enum Dialect {
+    POSTGRESQL,
+    H2,
+    OTHER;
+
+    /**
+     * Detects the dialect using connection metadata
+     *
+     * @param connection an open connection
+     * @return dialect of the database
+     */
+    public static Dialect of(Connection connection) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName();
+        if ("PostgreSQL".equalsIgnoreCase(productName)) {
+            return POSTGRESQL;
+        } else if ("H2".equalsIgnoreCase(productName)) {
+            return H2;
+        }
+        return OTHER;
+    }
+}
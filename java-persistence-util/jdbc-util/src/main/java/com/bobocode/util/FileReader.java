@@ -1,8 +1,12 @@
 package com.bobocode.util;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,7 +16,8 @@ import java.util.stream.Stream;
 import static java.util.stream.Collectors.joining;
 
 /**
- * {@link FileReader} provides an API that allow to read whole file into a {@link String} by file name.
+ * {@link FileReader} provides an API that allow to read whole file into a {@link String} by file name, or to open
+ * a file as a {@link BufferedReader} to read it without loading into memory.
  */
 public class FileReader {
 
@@ -29,6 +34,22 @@ public class FileReader {
         }
     }
 
+    /**
+     * Opens a reader of a text file from resources. Unlike {@link #readWholeFileFromResources(String)} it doesn't load
+     * the whole file, so it suits large files. The caller is responsible for closing the reader.
+     *
+     * @param fileName a name of a text file
+     * @return a buffered reader of the file content
+     */
+    public static BufferedReader openReaderFromResources(String fileName) {
+        Objects.requireNonNull(fileName);
+        InputStream inputStream = FileReader.class.getClassLoader().getResourceAsStream(fileName);
+        if (inputStream == null) {
+            throw new FileReaderException(String.format("Cannot find file %s in resources", fileName), null);
+        }
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
     private static Stream<String> openFileLinesStream(Path filePath) {
         try {
             return Files.lines(filePath);
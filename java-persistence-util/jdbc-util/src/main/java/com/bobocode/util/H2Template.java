@@ -0,0 +1,127 @@
+package com.bobocode.util;
+
+import org.h2.store.fs.FileUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link H2Template} is an in-memory H2 database that is initialized and seeded once, and then cloned as many times as
+ * needed. The template is dumped with {@code SCRIPT TO} into H2 in-memory file system ({@code memFS:}), and a clone
+ * is a new in-memory database that loads the dump with {@code RUNSCRIPT}. Loading a dump doesn't go through JDBC
+ * round trips, application code or script parsing on the client, so a clone is created in milliseconds.
+ * <p>
+ * Templates are registered by name, so they can be created once per JVM (e.g. in a static test fixture) and cloned
+ * by name from anywhere. Use {@link JdbcUtil#createH2Template(String, Initializer)} and
+ * {@link JdbcUtil#cloneFromTemplate(String)}.
+ */
+public class H2Template {
+    private static final Map<String, H2Template> TEMPLATES = new ConcurrentHashMap<>();
+    /**
+     * Shared by all templates, as a re-created template has the same name and its old clones still exist
+     */
+    private static final AtomicLong CLONE_COUNTER = new AtomicLong();
+
+    private final String name;
+    private final String snapshotPath;
+
+    private H2Template(String name) {
+        this.name = name;
+        this.snapshotPath = String.format("memFS:h2-templates/%s.sql", name);
+    }
+
+    /**
+     * Creates a template database, initializes it and stores its snapshot. The template database itself is closed
+     * after that. A template with the same name is replaced.
+     *
+     * @param name        template name
+     * @param initializer creates the schema and seeds data
+     * @return created template
+     */
+    static H2Template create(String name, Initializer initializer) throws SQLException {
+        H2Template template = new H2Template(name);
+        DataSource templateDataSource = template.createDataSource("template_" + name);
+        initializer.initialize(templateDataSource);
+        try (Connection connection = templateDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(String.format("SCRIPT TO '%s'", template.snapshotPath));
+            statement.execute("SHUTDOWN");
+        }
+        TEMPLATES.put(name, template);
+        return template;
+    }
+
+    /**
+     * @return a registered template
+     * @throws IllegalArgumentException if there is no template with such name
+     */
+    static H2Template forName(String name) {
+        H2Template template = TEMPLATES.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException(String.format("H2 template %s is not created", name));
+        }
+        return template;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates a clone with a generated unique name
+     */
+    public DataSource createClone() throws SQLException {
+        return createClone(String.format("%s_clone_%d", name, CLONE_COUNTER.incrementAndGet()));
+    }
+
+    /**
+     * Creates a new in-memory database with the data of the template. The clone lives until the JVM exits or it's
+     * dropped with {@link #dropClone(DataSource)}.
+     *
+     * @param cloneName database name of the clone, it must not be used by another database
+     * @return data source of the clone
+     */
+    public DataSource createClone(String cloneName) throws SQLException {
+        DataSource cloneDataSource = createDataSource(cloneName);
+        try (Connection connection = cloneDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(String.format("RUNSCRIPT FROM '%s'", snapshotPath));
+        }
+        return cloneDataSource;
+    }
+
+    /**
+     * Closes a clone and frees its memory. A data source of a dropped clone opens a new empty database.
+     */
+    public static void dropClone(DataSource clone) throws SQLException {
+        try (Connection connection = clone.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * Removes the template and frees its snapshot. Existing clones are not affected.
+     */
+    public void drop() {
+        TEMPLATES.remove(name, this);
+        FileUtils.delete(snapshotPath);
+    }
+
+    private DataSource createDataSource(String databaseName) {
+        return JdbcUtil.createInMemoryH2DataSource(JdbcUtil.formatH2ImMemoryDbUrl(databaseName),
+                JdbcUtil.DEFAULT_USERNAME, JdbcUtil.DEFAULT_PASSWORD);
+    }
+
+    /**
+     * Creates the schema and seeds data of a template
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(DataSource dataSource) throws SQLException;
+    }
+}
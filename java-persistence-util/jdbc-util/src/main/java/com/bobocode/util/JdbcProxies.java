@@ -0,0 +1,59 @@
+package com.bobocode.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Wrapper;
+
+/**
+ * {@link JdbcProxies} contains helpers shared by the dynamic proxies that jdbc-util puts in front of JDBC objects
+ * (connections, statements). It allows to create a proxy, to call a target method unwrapping reflection exceptions,
+ * and to answer {@link Wrapper} calls so that drivers specific API (e.g. {@code PGConnection}) stays reachable.
+ */
+public class JdbcProxies {
+
+    /**
+     * Creates a dynamic proxy that implements provided JDBC interface.
+     *
+     * @param type    a JDBC interface, e.g. {@link java.sql.Connection}
+     * @param handler invocation handler
+     * @return proxy instance
+     */
+    public static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Invokes a method on the target object and rethrows the original exception instead of
+     * {@link InvocationTargetException}.
+     */
+    public static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles {@link Wrapper#unwrap(Class)} for a proxy: returns the proxy itself or the target if one of them
+     * implements required interface, otherwise delegates to the target.
+     */
+    public static <T> T unwrap(Object proxy, Wrapper target, Class<T> iface) throws SQLException {
+        if (iface.isInstance(proxy)) {
+            return iface.cast(proxy);
+        } else if (iface.isInstance(target)) {
+            return iface.cast(target);
+        }
+        return target.unwrap(iface);
+    }
+
+    /**
+     * Handles {@link Wrapper#isWrapperFor(Class)} for a proxy.
+     */
+    public static boolean isWrapperFor(Object proxy, Wrapper target, Class<?> iface) throws SQLException {
+        return iface.isInstance(proxy) || iface.isInstance(target) || target.isWrapperFor(iface);
+    }
+}
@@ -1,9 +1,13 @@
 package com.bobocode.util;
 
+import com.bobocode.util.pool.PoolConfig;
+import com.bobocode.util.pool.PooledDataSource;
+import com.bobocode.util.statement.StatementCachingDataSource;
 import org.h2.jdbcx.JdbcDataSource;
 import org.postgresql.ds.PGSimpleDataSource;
 
 import javax.sql.DataSource;
+import java.sql.SQLException;
 import java.util.Map;
 
 public class JdbcUtil {
@@ -25,7 +29,40 @@ public class JdbcUtil {
         return h2DataSource;
     }
 
-    private static String formatH2ImMemoryDbUrl(String databaseName) {
+    public static PooledDataSource createDefaultPooledInMemoryH2DataSource() {
+        String url = formatH2ImMemoryDbUrl(DEFAULT_DATABASE_NAME);
+        return createPooledH2DataSource(url, DEFAULT_USERNAME, DEFAULT_PASSWORD, PoolConfig.builder().build());
+    }
+
+    public static PooledDataSource createPooledH2DataSource(String url, String username, String pass,
+                                                            PoolConfig poolConfig) {
+        DataSource h2DataSource = createInMemoryH2DataSource(url, username, pass);
+        return createPool(h2DataSource, poolConfig);
+    }
+
+    /**
+     * Creates an in-memory H2 database, initializes it and stores it as a template that can be cloned by name
+     *
+     * @param templateName template name
+     * @param initializer  creates the schema and seeds data
+     * @return created template
+     */
+    public static H2Template createH2Template(String templateName, H2Template.Initializer initializer)
+            throws SQLException {
+        return H2Template.create(templateName, initializer);
+    }
+
+    /**
+     * Creates a new in-memory H2 database with the data of the template
+     *
+     * @param templateName a name of the template created by {@link #createH2Template(String, H2Template.Initializer)}
+     * @return data source of the clone
+     */
+    public static DataSource cloneFromTemplate(String templateName) throws SQLException {
+        return H2Template.forName(templateName).createClone();
+    }
+
+    static String formatH2ImMemoryDbUrl(String databaseName) {
         return String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false;DATABASE_TO_UPPER=false;", databaseName);
     }
 
@@ -42,6 +79,24 @@ public class JdbcUtil {
         return dataSource;
     }
 
+    public static PooledDataSource createDefaultPooledPostgresDataSource() {
+        String url = formatPostgresDbUrl(DEFAULT_DATABASE_NAME);
+        return createPooledPostgresDataSource(url, DEFAULT_USERNAME, DEFAULT_PASSWORD, PoolConfig.builder().build());
+    }
+
+    public static PooledDataSource createPooledPostgresDataSource(String url, String username, String pass,
+                                                                  PoolConfig poolConfig) {
+        DataSource postgresDataSource = createPostgresDataSource(url, username, pass);
+        return createPool(postgresDataSource, poolConfig);
+    }
+
+    private static PooledDataSource createPool(DataSource dataSource, PoolConfig poolConfig) {
+        if (poolConfig.getStatementCacheSize() > 0) {
+            dataSource = new StatementCachingDataSource(dataSource, poolConfig.getStatementCacheSize());
+        }
+        return new PooledDataSource(dataSource, poolConfig);
+    }
+
     private static String formatPostgresDbUrl(String databaseName) {
         return String.format("jdbc:postgresql://localhost:5432/%s", databaseName);
     }
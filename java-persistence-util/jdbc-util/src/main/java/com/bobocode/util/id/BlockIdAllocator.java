@@ -0,0 +1,258 @@
+package com.bobocode.util.id;
+
+import com.bobocode.util.Dialect;
+import com.bobocode.util.metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link BlockIdAllocator} is a hi/lo (pooled) id generator: it reserves a block of {@code blockSize} ids in the
+ * database with one round trip, and hands them out from memory, so rows can get their ids before they are inserted
+ * and batch inserts don't need {@link Statement#RETURN_GENERATED_KEYS}.
+ * <ul>
+ * <li>PostgreSQL: a block starts at {@code nextval} of a sequence with {@code INCREMENT BY blockSize}, the sequence
+ * is created if it doesn't exist. An existing sequence with another increment would give overlapping blocks, so it
+ * fails the first reservation with {@link IdAllocationException}.</li>
+ * <li>H2 and other databases: the next free id is kept in a row of the {@code id_blocks} counter table, which is
+ * moved forward by {@code blockSize} in a short transaction</li>
+ * </ul>
+ * The sequence or the counter table is created and checked once, with the first reservation. Ids of the current
+ * block are taken lock-free with an atomic increment. Only the thread that finds the block exhausted takes a lock to
+ * reserve the next one. Ids of a block that are not used before shutdown are lost, so ids are unique and increasing
+ * within a block, but they have gaps. The same sequence must always be used with the same block size, and ids must
+ * not be generated by the database for the same table.
+ */
+public class BlockIdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+    public static final String COUNTER_TABLE_NAME = "id_blocks";
+    private static final Block EXHAUSTED_BLOCK = new Block(0, 0);
+
+    private final DataSource dataSource;
+    private final String name;
+    private final int blockSize;
+    private final AtomicReference<Block> currentBlock = new AtomicReference<>(EXHAUSTED_BLOCK);
+    private final ReentrantLock reservationLock = new ReentrantLock();
+    private final LongAdder allocatedIds = new LongAdder();
+    private final LongAdder reservedBlocks = new LongAdder();
+    private final LatencyHistogram reservationLatency = new LatencyHistogram();
+    private final long createdAtNanos = System.nanoTime();
+    /**
+     * Guarded by {@code reservationLock}
+     */
+    private boolean schemaReady;
+
+    public BlockIdAllocator(DataSource dataSource, String name) {
+        this(dataSource, name, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param dataSource a data source of the database that keeps reserved blocks
+     * @param name       sequence name on PostgreSQL, counter name in the counter table on other databases
+     * @param blockSize  number of ids reserved with one round trip
+     */
+    public BlockIdAllocator(DataSource dataSource, String name, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive");
+        }
+        this.dataSource = dataSource;
+        this.name = name;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return a new unique id
+     * @throws IdAllocationException if a block cannot be reserved
+     */
+    public long nextId() {
+        while (true) {
+            Block block = currentBlock.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                allocatedIds.increment();
+                return id;
+            }
+            reserveNextBlock(block);
+        }
+    }
+
+    /**
+     * Allocates many ids at once. Ids that fit into the current block are taken with one atomic operation.
+     *
+     * @param count number of ids
+     * @return new unique ids
+     * @throws IdAllocationException if a block cannot be reserved
+     */
+    public long[] allocate(int count) {
+        long[] ids = new long[count];
+        int allocated = 0;
+        while (allocated < count) {
+            Block block = currentBlock.get();
+            long start = block.next.getAndAdd(count - allocated);
+            if (start < block.end) {
+                long end = Math.min(block.end, start + count - allocated);
+                for (long id = start; id < end; id++) {
+                    ids[allocated++] = id;
+                }
+            } else {
+                reserveNextBlock(block);
+            }
+        }
+        allocatedIds.add(count);
+        return ids;
+    }
+
+    public IdAllocationStats getStats() {
+        return new IdAllocationStats(allocatedIds.sum(), reservedBlocks.sum(), blockSize,
+                reservationLatency.snapshot(), Duration.ofNanos(System.nanoTime() - createdAtNanos));
+    }
+
+    /**
+     * Threads that found the same block exhausted wait here, the first one reserves a new block and the others
+     * take ids from it
+     */
+    private void reserveNextBlock(Block exhaustedBlock) {
+        reservationLock.lock();
+        try {
+            if (currentBlock.get() == exhaustedBlock) {
+                long startNanos = System.nanoTime();
+                long start = reserveBlockStart();
+                reservationLatency.record(System.nanoTime() - startNanos);
+                reservedBlocks.increment();
+                currentBlock.set(new Block(start, start + blockSize));
+            }
+        } finally {
+            reservationLock.unlock();
+        }
+    }
+
+    private long reserveBlockStart() {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean postgresql = Dialect.of(connection) == Dialect.POSTGRESQL;
+            if (!schemaReady) {
+                if (postgresql) {
+                    createSequence(connection);
+                } else {
+                    createCounterTable(connection);
+                }
+                schemaReady = true;
+            }
+            return postgresql ? reserveFromSequence(connection) : reserveFromCounterTable(connection);
+        } catch (SQLException e) {
+            throw new IdAllocationException(String.format("Cannot reserve a block of %d ids from %s", blockSize, name),
+                    e);
+        }
+    }
+
+    private void createSequence(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("CREATE SEQUENCE IF NOT EXISTS %s INCREMENT BY %d", name, blockSize));
+        }
+        try (PreparedStatement selectStatement = connection.prepareStatement(
+                "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass")) {
+            selectStatement.setString(1, name);
+            ResultSet resultSet = selectStatement.executeQuery();
+            resultSet.next();
+            long increment = resultSet.getLong(1);
+            if (increment != blockSize) {
+                throw new IdAllocationException(String.format(
+                        "Sequence %s increments by %d, but block size is %d", name, increment, blockSize));
+            }
+        }
+    }
+
+    private long reserveFromSequence(Connection connection) throws SQLException {
+        try (PreparedStatement selectStatement = connection.prepareStatement("SELECT nextval(?)")) {
+            selectStatement.setString(1, name);
+            ResultSet resultSet = selectStatement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void createCounterTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "next_value BIGINT NOT NULL, " +
+                    "CONSTRAINT %s_pk PRIMARY KEY (name))", COUNTER_TABLE_NAME, COUNTER_TABLE_NAME));
+        }
+    }
+
+    private long reserveFromCounterTable(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            if (!moveCounter(connection)) {
+                insertCounter(connection);
+            }
+            long nextValue = selectCounter(connection);
+            connection.commit();
+            return nextValue - blockSize;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private boolean moveCounter(Connection connection) throws SQLException {
+        String updateSql = String.format("UPDATE %s SET next_value = next_value + ? WHERE name = ?",
+                COUNTER_TABLE_NAME);
+        try (PreparedStatement updateStatement = connection.prepareStatement(updateSql)) {
+            updateStatement.setLong(1, blockSize);
+            updateStatement.setString(2, name);
+            return updateStatement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Another node may insert the counter at the same time, then the insert fails and the counter is moved instead
+     */
+    private void insertCounter(Connection connection) throws SQLException {
+        String insertSql = String.format("INSERT INTO %s (name, next_value) VALUES (?, ?)", COUNTER_TABLE_NAME);
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSql)) {
+            insertStatement.setString(1, name);
+            insertStatement.setLong(2, 1L + blockSize);
+            insertStatement.executeUpdate();
+        } catch (SQLException e) {
+            connection.rollback();
+            if (!moveCounter(connection)) {
+                throw e;
+            }
+        }
+    }
+
+    private long selectCounter(Connection connection) throws SQLException {
+        String selectSql = String.format("SELECT next_value FROM %s WHERE name = ?", COUNTER_TABLE_NAME);
+        try (PreparedStatement selectStatement = connection.prepareStatement(selectSql)) {
+            selectStatement.setString(1, name);
+            ResultSet resultSet = selectStatement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Ids from {@code next} (inclusive) to {@code end} (exclusive). {@code next} may grow past {@code end} when
+     * threads race for the last ids, such block is just exhausted.
+     */
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bobocode.util.id;
+
+public class IdAllocationException extends RuntimeException {
+    public IdAllocationException(String message) {
+        super(message);
+    }
+
+    public IdAllocationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
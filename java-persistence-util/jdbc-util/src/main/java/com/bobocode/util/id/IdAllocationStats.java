@@ -0,0 +1,29 @@
+package com.bobocode.util.id;
+
+import com.bobocode.util.metrics.HistogramSnapshot;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * {@link IdAllocationStats} is a snapshot of {@link BlockIdAllocator} counters since the allocator was created
+ */
+@Value
+public class IdAllocationStats {
+    long allocatedIds;
+    long reservedBlocks;
+    int blockSize;
+    /**
+     * Time of the database round trips that reserved blocks
+     */
+    HistogramSnapshot reservationLatency;
+    Duration elapsed;
+
+    /**
+     * @return average number of allocated ids per second
+     */
+    public double getAllocationRate() {
+        long elapsedNanos = Math.max(elapsed.toNanos(), 1);
+        return allocatedIds * 1_000_000_000.0 / elapsedNanos;
+    }
+}
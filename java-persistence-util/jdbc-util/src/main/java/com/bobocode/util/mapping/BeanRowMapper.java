@@ -0,0 +1,180 @@
+package com.bobocode.util.mapping;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link BeanRowMapper} maps result set rows to Java beans with a public no-arg constructor and setters, e.g. Lombok
+ * {@code @Data} classes. A column is mapped to the property with the same name ignoring case and underscores, so
+ * {@code expiration_date} and {@code EXPIRATION_DATE} are both mapped to {@code expirationDate}. Columns without a
+ * matching property are ignored.
+ * <p>
+ * Setters are resolved once per bean class as {@link MethodHandle}s. Column indexes and readers are resolved once per
+ * result set shape (the list of column labels) and cached, so mapping a row is just a sequence of typed getters by
+ * index and setter calls, without name lookups or reflection. Create one mapper per bean class and reuse it.
+ *
+ * @param <T> bean type
+ */
+public class BeanRowMapper<T> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> beanClass;
+    private final MethodHandle constructor;
+    private final Map<String, Property> propertiesByKey;
+    private final Map<List<String>, RowMapper<T>> mappersByShape = new ConcurrentHashMap<>();
+
+    private BeanRowMapper(Class<T> beanClass) {
+        this.beanClass = beanClass;
+        this.constructor = findConstructor(beanClass);
+        this.propertiesByKey = findProperties(beanClass);
+    }
+
+    /**
+     * Creates a mapper for provided bean class
+     *
+     * @throws IllegalArgumentException if the class has no public no-arg constructor
+     */
+    public static <T> BeanRowMapper<T> of(Class<T> beanClass) {
+        return new BeanRowMapper<>(beanClass);
+    }
+
+    /**
+     * Returns a mapper bound to the columns of provided result set metadata
+     */
+    public RowMapper<T> forMetaData(ResultSetMetaData metaData) throws SQLException {
+        List<String> shape = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            shape.add(metaData.getColumnLabel(i));
+        }
+        RowMapper<T> rowMapper = mappersByShape.get(shape);
+        if (rowMapper == null) {
+            rowMapper = mappersByShape.computeIfAbsent(shape, this::createRowMapper);
+        }
+        return rowMapper;
+    }
+
+    /**
+     * Maps all remaining rows of the result set
+     */
+    public List<T> mapAll(ResultSet resultSet) throws SQLException {
+        RowMapper<T> rowMapper = forMetaData(resultSet.getMetaData());
+        List<T> beans = new ArrayList<>();
+        while (resultSet.next()) {
+            beans.add(rowMapper.mapRow(resultSet));
+        }
+        return beans;
+    }
+
+    private RowMapper<T> createRowMapper(List<String> shape) {
+        List<ColumnBinding> bindings = new ArrayList<>();
+        for (int i = 0; i < shape.size(); i++) {
+            Property property = propertiesByKey.get(toKey(shape.get(i)));
+            if (property != null) {
+                bindings.add(new ColumnBinding(i + 1, ColumnReader.forType(property.type), property.setter,
+                        property.type.isPrimitive()));
+            }
+        }
+        ColumnBinding[] columnBindings = bindings.toArray(new ColumnBinding[0]);
+        return resultSet -> mapRow(resultSet, columnBindings);
+    }
+
+    private T mapRow(ResultSet resultSet, ColumnBinding[] columnBindings) throws SQLException {
+        Object bean = newBean();
+        for (ColumnBinding binding : columnBindings) {
+            Object value = binding.reader.read(resultSet, binding.columnIndex);
+            if (value != null || !binding.primitive) {
+                set(bean, binding.setter, value);
+            }
+        }
+        return beanClass.cast(bean);
+    }
+
+    private Object newBean() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new RowMappingException(String.format("Cannot create %s", beanClass.getName()), e);
+        }
+    }
+
+    private void set(Object bean, MethodHandle setter, Object value) {
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw new RowMappingException(String.format("Cannot set %s to %s", value, beanClass.getName()), e);
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> beanClass) {
+        try {
+            return MethodHandles.publicLookup()
+                    .findConstructor(beanClass, MethodType.methodType(void.class))
+                    .asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("%s has no public no-arg constructor",
+                    beanClass.getName()), e);
+        }
+    }
+
+    private static Map<String, Property> findProperties(Class<?> beanClass) {
+        Map<String, Property> properties = new HashMap<>();
+        for (Method method : beanClass.getMethods()) {
+            if (isSetter(method)) {
+                try {
+                    MethodHandle setter = MethodHandles.publicLookup().unreflect(method).asType(SETTER_TYPE);
+                    properties.put(toKey(method.getName().substring(3)),
+                            new Property(method.getParameterTypes()[0], setter));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException(String.format("Cannot access %s", method), e);
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static boolean isSetter(Method method) {
+        return method.getName().startsWith("set") && method.getName().length() > 3
+                && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers());
+    }
+
+    private static String toKey(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static class Property {
+        private final Class<?> type;
+        private final MethodHandle setter;
+
+        Property(Class<?> type, MethodHandle setter) {
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+
+    private static class ColumnBinding {
+        private final int columnIndex;
+        private final ColumnReader reader;
+        private final MethodHandle setter;
+        private final boolean primitive;
+
+        ColumnBinding(int columnIndex, ColumnReader reader, MethodHandle setter, boolean primitive) {
+            this.columnIndex = columnIndex;
+            this.reader = reader;
+            this.setter = setter;
+            this.primitive = primitive;
+        }
+    }
+}
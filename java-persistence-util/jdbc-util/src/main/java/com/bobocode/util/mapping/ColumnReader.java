@@ -0,0 +1,66 @@
+package com.bobocode.util.mapping;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * {@link ColumnReader} reads a column value of a specific Java type by column index. Readers use typed
+ * {@link ResultSet} getters, so the driver does not pick and convert the type through {@code getObject}. Values are
+ * still returned as {@link Object}, so primitive values are boxed on their way to a setter.
+ */
+@FunctionalInterface
+interface ColumnReader {
+    Map<Class<?>, ColumnReader> READERS_BY_TYPE = Map.ofEntries(
+            Map.entry(String.class, ResultSet::getString),
+            Map.entry(Long.class, (resultSet, index) -> {
+                long value = resultSet.getLong(index);
+                return resultSet.wasNull() ? null : value;
+            }),
+            Map.entry(long.class, ResultSet::getLong),
+            Map.entry(Integer.class, (resultSet, index) -> {
+                int value = resultSet.getInt(index);
+                return resultSet.wasNull() ? null : value;
+            }),
+            Map.entry(int.class, ResultSet::getInt),
+            Map.entry(Double.class, (resultSet, index) -> {
+                double value = resultSet.getDouble(index);
+                return resultSet.wasNull() ? null : value;
+            }),
+            Map.entry(double.class, ResultSet::getDouble),
+            Map.entry(Boolean.class, (resultSet, index) -> {
+                boolean value = resultSet.getBoolean(index);
+                return resultSet.wasNull() ? null : value;
+            }),
+            Map.entry(boolean.class, ResultSet::getBoolean),
+            Map.entry(BigDecimal.class, ResultSet::getBigDecimal),
+            Map.entry(LocalDate.class, (resultSet, index) -> {
+                Date value = resultSet.getDate(index);
+                return value != null ? value.toLocalDate() : null;
+            }),
+            Map.entry(LocalDateTime.class, (resultSet, index) -> {
+                Timestamp value = resultSet.getTimestamp(index);
+                return value != null ? value.toLocalDateTime() : null;
+            }),
+            Map.entry(Instant.class, (resultSet, index) -> {
+                Timestamp value = resultSet.getTimestamp(index);
+                return value != null ? value.toInstant() : null;
+            })
+    );
+
+    Object read(ResultSet resultSet, int columnIndex) throws SQLException;
+
+    /**
+     * @return a reader of provided type, or a generic {@code getObject} reader for other types
+     */
+    static ColumnReader forType(Class<?> type) {
+        ColumnReader reader = READERS_BY_TYPE.get(type);
+        return reader != null ? reader : (resultSet, index) -> resultSet.getObject(index, type);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bobocode.util.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link RowMapper} creates an object from the current row of a {@link ResultSet}
+ *
+ * @param <T> object type
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,7 @@
+package com.bobocode.util.mapping;
+
+public class RowMappingException extends RuntimeException {
+    public RowMappingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
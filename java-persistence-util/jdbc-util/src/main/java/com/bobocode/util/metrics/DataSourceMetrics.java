@@ -0,0 +1,28 @@
+package com.bobocode.util.metrics;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * {@link DataSourceMetrics} is a point-in-time snapshot of the metrics collected by {@link InstrumentedDataSource}.
+ * Pool related values ({@code idleConnections}, {@code threadsAwaitingConnection}) are zero when the instrumented
+ * data source is not a {@link com.bobocode.util.pool.PooledDataSource}. In that case every connection in use is also
+ * an open physical connection.
+ */
+@Value
+@Builder
+public class DataSourceMetrics {
+    /**
+     * Time that {@link javax.sql.DataSource#getConnection()} took for successful calls
+     */
+    HistogramSnapshot acquisitionLatency;
+    /**
+     * Time between getting a connection and closing it
+     */
+    HistogramSnapshot connectionLifetime;
+    long acquisitionFailures;
+    int openConnections;
+    int inUseConnections;
+    int idleConnections;
+    int threadsAwaitingConnection;
+}
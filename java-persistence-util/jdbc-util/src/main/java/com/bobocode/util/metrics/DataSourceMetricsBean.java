@@ -0,0 +1,73 @@
+package com.bobocode.util.metrics;
+
+/**
+ * {@link DataSourceMetricsBean} is a JMX view of an {@link InstrumentedDataSource}. Each attribute reads a fresh
+ * snapshot, which is cheap because the snapshot only sums a few counters.
+ */
+class DataSourceMetricsBean implements DataSourceMetricsMXBean {
+    private final InstrumentedDataSource dataSource;
+
+    DataSourceMetricsBean(InstrumentedDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public long getAcquisitionCount() {
+        return dataSource.getMetrics().getAcquisitionLatency().getCount();
+    }
+
+    @Override
+    public long getAcquisitionFailures() {
+        return dataSource.getMetrics().getAcquisitionFailures();
+    }
+
+    @Override
+    public long getAcquisitionMeanMicros() {
+        return dataSource.getMetrics().getAcquisitionLatency().getMean().toNanos() / 1_000;
+    }
+
+    @Override
+    public long getAcquisitionP50Micros() {
+        return dataSource.getMetrics().getAcquisitionLatency().getPercentile(50).toNanos() / 1_000;
+    }
+
+    @Override
+    public long getAcquisitionP99Micros() {
+        return dataSource.getMetrics().getAcquisitionLatency().getPercentile(99).toNanos() / 1_000;
+    }
+
+    @Override
+    public long getAcquisitionMaxMicros() {
+        return dataSource.getMetrics().getAcquisitionLatency().getMax().toNanos() / 1_000;
+    }
+
+    @Override
+    public long getConnectionLifetimeMeanMicros() {
+        return dataSource.getMetrics().getConnectionLifetime().getMean().toNanos() / 1_000;
+    }
+
+    @Override
+    public long getConnectionLifetimeP99Micros() {
+        return dataSource.getMetrics().getConnectionLifetime().getPercentile(99).toNanos() / 1_000;
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return dataSource.getMetrics().getOpenConnections();
+    }
+
+    @Override
+    public int getInUseConnections() {
+        return dataSource.getMetrics().getInUseConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return dataSource.getMetrics().getIdleConnections();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return dataSource.getMetrics().getThreadsAwaitingConnection();
+    }
+}
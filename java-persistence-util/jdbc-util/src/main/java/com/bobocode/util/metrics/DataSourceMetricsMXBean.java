@@ -0,0 +1,31 @@
+package com.bobocode.util.metrics;
+
+/**
+ * {@link DataSourceMetricsMXBean} exposes {@link DataSourceMetrics} via JMX. Durations are reported in microseconds.
+ */
+public interface DataSourceMetricsMXBean {
+
+    long getAcquisitionCount();
+
+    long getAcquisitionFailures();
+
+    long getAcquisitionMeanMicros();
+
+    long getAcquisitionP50Micros();
+
+    long getAcquisitionP99Micros();
+
+    long getAcquisitionMaxMicros();
+
+    long getConnectionLifetimeMeanMicros();
+
+    long getConnectionLifetimeP99Micros();
+
+    int getOpenConnections();
+
+    int getInUseConnections();
+
+    int getIdleConnections();
+
+    int getThreadsAwaitingConnection();
+}
@@ -0,0 +1,44 @@
+package com.bobocode.util.metrics;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * {@link HistogramSnapshot} is an immutable copy of {@link LatencyHistogram} counters. Percentiles are estimated as
+ * the upper bound of the bucket that contains the requested rank, so they are accurate within a factor of two.
+ */
+@Value
+public class HistogramSnapshot {
+    long count;
+    long totalNanos;
+    long maxNanos;
+    long[] bucketCounts;
+
+    public Duration getMean() {
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos / count);
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(maxNanos);
+    }
+
+    /**
+     * @param percentile a value between 0 and 100, e.g. 99.9
+     * @return estimated duration that is not exceeded by given percent of the recorded values
+     */
+    public Duration getPercentile(double percentile) {
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank && bucketCounts[i] > 0) {
+                return Duration.ofNanos(Math.min(LatencyHistogram.bucketUpperBoundNanos(i), maxNanos));
+            }
+        }
+        return getMax();
+    }
+}
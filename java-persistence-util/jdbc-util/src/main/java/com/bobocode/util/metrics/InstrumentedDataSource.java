@@ -0,0 +1,204 @@
+package com.bobocode.util.metrics;
+
+import com.bobocode.util.JdbcProxies;
+import com.bobocode.util.pool.PooledDataSource;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * {@link InstrumentedDataSource} is a {@link DataSource} decorator that measures how long it takes to get
+ * a connection, how long connections are held, how many of them are in use and how many acquisitions failed.
+ * Use {@link #getMetrics()} to get a snapshot, or {@link #registerMBean(String)} to publish metrics via JMX.
+ * <p>
+ * When the target is a {@link PooledDataSource}, open and idle connections are taken from the pool, so the metrics
+ * show both the logical connections handed out and the physical connections behind them.
+ */
+public class InstrumentedDataSource implements DataSource {
+    private static final String MBEAN_NAME_PATTERN = "com.bobocode.util.metrics:type=DataSource,name=%s";
+
+    private final DataSource targetDataSource;
+    private final PooledDataSource pool;
+    private final LatencyHistogram acquisitionLatency = new LatencyHistogram();
+    private final LatencyHistogram connectionLifetime = new LatencyHistogram();
+    private final LongAdder acquisitionFailures = new LongAdder();
+    private final AtomicInteger inUseConnections = new AtomicInteger();
+
+    public InstrumentedDataSource(DataSource targetDataSource) {
+        this.targetDataSource = targetDataSource;
+        this.pool = findPool(targetDataSource);
+    }
+
+    private static PooledDataSource findPool(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(PooledDataSource.class) ? dataSource.unwrap(PooledDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long startNanos = System.nanoTime();
+        try {
+            return instrument(targetDataSource.getConnection(), startNanos);
+        } catch (SQLException | RuntimeException e) {
+            acquisitionFailures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long startNanos = System.nanoTime();
+        try {
+            return instrument(targetDataSource.getConnection(username, password), startNanos);
+        } catch (SQLException | RuntimeException e) {
+            acquisitionFailures.increment();
+            throw e;
+        }
+    }
+
+    private Connection instrument(Connection connection, long startNanos) {
+        long acquiredAtNanos = System.nanoTime();
+        acquisitionLatency.record(acquiredAtNanos - startNanos);
+        inUseConnections.incrementAndGet();
+        return JdbcProxies.createProxy(Connection.class, new InstrumentedConnectionHandler(connection, acquiredAtNanos));
+    }
+
+    /**
+     * @return a snapshot of collected metrics
+     */
+    public DataSourceMetrics getMetrics() {
+        int inUse = inUseConnections.get();
+        return DataSourceMetrics.builder()
+                .acquisitionLatency(acquisitionLatency.snapshot())
+                .connectionLifetime(connectionLifetime.snapshot())
+                .acquisitionFailures(acquisitionFailures.sum())
+                .inUseConnections(inUse)
+                .openConnections(pool != null ? pool.getTotalConnections() : inUse)
+                .idleConnections(pool != null ? pool.getIdleConnections() : 0)
+                .threadsAwaitingConnection(pool != null ? pool.getThreadsAwaitingConnection() : 0)
+                .build();
+    }
+
+    /**
+     * Registers an MBean with the metrics of this data source in the platform MBean server
+     *
+     * @param name a name that distinguishes this data source, e.g. "products"
+     * @return the object name of the registered MBean
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(String.format(MBEAN_NAME_PATTERN, ObjectName.quote(name)));
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            mBeanServer.registerMBean(new DataSourceMetricsBean(this), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(String.format("Cannot register data source MBean %s", name), e);
+        }
+    }
+
+    /**
+     * Removes the MBean previously registered by {@link #registerMBean(String)}
+     *
+     * @param objectName the object name of the registered MBean
+     */
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException(String.format("Cannot unregister data source MBean %s", objectName), e);
+        }
+    }
+
+    private class InstrumentedConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final long acquiredAtNanos;
+        private boolean closed;
+
+        InstrumentedConnectionHandler(Connection connection, long acquiredAtNanos) {
+            this.connection = connection;
+            this.acquiredAtNanos = acquiredAtNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "unwrap":
+                    return JdbcProxies.unwrap(proxy, connection, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return JdbcProxies.isWrapperFor(proxy, connection, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return JdbcProxies.invoke(connection, method, args);
+            }
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            inUseConnections.decrementAndGet();
+            connectionLifetime.record(System.nanoTime() - acquiredAtNanos);
+            connection.close();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return targetDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+}
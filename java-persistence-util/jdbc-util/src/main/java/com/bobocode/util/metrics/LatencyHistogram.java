@@ -0,0 +1,57 @@
+package com.bobocode.util.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link LatencyHistogram} is a lock-free histogram of durations with exponential buckets. Bucket {@code i} counts
+ * durations in range {@code [2^(i-1), 2^i)} microseconds, so 32 buckets cover everything from a microsecond to more
+ * than an hour. Recording is a couple of {@link LongAdder} increments, and {@link #snapshot()} only reads 32 counters,
+ * so it's cheap enough to be polled every second.
+ */
+public class LatencyHistogram {
+    static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[bucketIndex(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    static int bucketIndex(long nanos) {
+        long micros = nanos / 1_000;
+        int index = Long.SIZE - Long.numberOfLeadingZeros(micros);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @param index bucket index
+     * @return exclusive upper bound of the bucket in nanoseconds
+     */
+    static long bucketUpperBoundNanos(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << index) * 1_000;
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = buckets[i].sum();
+        }
+        return new HistogramSnapshot(count.sum(), totalNanos.sum(), maxNanos.get(), bucketCounts);
+    }
+}
@@ -0,0 +1,438 @@
+package com.bobocode.util.metrics;
+
+import com.bobocode.util.JdbcProxies;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ProfilingDataSource} is a {@link DataSource} decorator that measures every statement executed through its
+ * connections. Metrics are kept per normalized SQL (see {@link SqlNormalizer}): an execution time histogram, the
+ * number of returned or affected rows and batch sizes. Use {@link #getStatementMetrics()} to find the statements that
+ * dominate latency.
+ * <p>
+ * An execution that takes {@code slowThreshold} or longer is logged with its bind values, as a warning or to a given
+ * consumer. Profiling is not free: every {@code prepareStatement} creates an invocation handler and a dynamic proxy
+ * (and every query a result set proxy), every call on them goes through reflection with a new arguments array and
+ * boxed primitive arguments, and a statement allocates its bind values array on the first parameter setter. On top
+ * of that, an execution costs two {@link System#nanoTime()} calls and a few {@link LongAdder} increments. SQL is
+ * normalized once per distinct SQL text, and the log message is built only for slow executions.
+ * <p>
+ * Connections and statements that were opened elsewhere can be profiled with {@link #wrap(Connection)} and
+ * {@link #wrap(PreparedStatement, String)}.
+ */
+@Slf4j
+public class ProfilingDataSource implements DataSource {
+    /**
+     * Statements with literals in SQL can produce unlimited number of distinct texts, they are normalized on every
+     * execution once the cache is full
+     */
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final int MAX_LOGGED_VALUE_LENGTH = 100;
+
+    private final DataSource targetDataSource;
+    private final long slowThresholdNanos;
+    private final Consumer<String> slowStatementLog;
+    private final Map<String, StatementStats> statsBySql = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statsByRawSql = new ConcurrentHashMap<>();
+
+    /**
+     * @param targetDataSource a data source to profile
+     * @param slowThreshold    min execution time of a statement that is logged
+     */
+    public ProfilingDataSource(DataSource targetDataSource, Duration slowThreshold) {
+        this(targetDataSource, slowThreshold, log::warn);
+    }
+
+    /**
+     * @param targetDataSource a data source to profile
+     * @param slowThreshold    min execution time of a statement that is logged
+     * @param slowStatementLog receives a message about every slow execution
+     */
+    public ProfilingDataSource(DataSource targetDataSource, Duration slowThreshold, Consumer<String> slowStatementLog) {
+        this.targetDataSource = targetDataSource;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowStatementLog = slowStatementLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(targetDataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(targetDataSource.getConnection(username, password));
+    }
+
+    /**
+     * Returns a connection that profiles all its statements in this data source metrics
+     */
+    public Connection wrap(Connection connection) {
+        return JdbcProxies.createProxy(Connection.class, new ProfilingConnectionHandler(connection));
+    }
+
+    /**
+     * Returns a statement that is profiled in this data source metrics
+     *
+     * @param statement a prepared statement
+     * @param sql       the SQL that the statement was prepared with
+     */
+    public PreparedStatement wrap(PreparedStatement statement, String sql) {
+        return JdbcProxies.createProxy(PreparedStatement.class, new ProfilingStatementHandler(statement, null,
+                findStats(sql)));
+    }
+
+    /**
+     * @return metrics of all executed statements ordered by total execution time descending
+     */
+    public List<StatementMetrics> getStatementMetrics() {
+        return statsBySql.values().stream()
+                .map(StatementStats::snapshot)
+                .sorted(Comparator.comparingLong((StatementMetrics metrics) -> metrics.getLatency().getTotalNanos())
+                        .reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void resetStatementMetrics() {
+        statsByRawSql.clear();
+        statsBySql.clear();
+    }
+
+    private StatementStats findStats(String sql) {
+        StatementStats stats = statsByRawSql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        stats = statsBySql.computeIfAbsent(SqlNormalizer.normalize(sql), StatementStats::new);
+        if (statsByRawSql.size() < MAX_CACHED_SQL) {
+            statsByRawSql.put(sql, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Counters of one normalized statement
+     */
+    private static class StatementStats {
+        private final String sql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder batchedStatements = new LongAdder();
+        private final LongAdder slowExecutions = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        StatementMetrics snapshot() {
+            return new StatementMetrics(sql, latency.snapshot(), rows.sum(), batches.sum(), batchedStatements.sum(),
+                    slowExecutions.sum());
+        }
+    }
+
+    private class ProfilingConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ProfilingConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    Statement statement = (Statement) JdbcProxies.invoke(connection, method, args);
+                    return JdbcProxies.createProxy(method.getReturnType(), new ProfilingStatementHandler(statement,
+                            proxy, findStats((String) args[0])));
+                case "createStatement":
+                    Statement plainStatement = (Statement) JdbcProxies.invoke(connection, method, args);
+                    return JdbcProxies.createProxy(Statement.class, new ProfilingStatementHandler(plainStatement,
+                            proxy, null));
+                case "unwrap":
+                    return JdbcProxies.unwrap(proxy, connection, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return JdbcProxies.isWrapperFor(proxy, connection, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return JdbcProxies.invoke(connection, method, args);
+            }
+        }
+    }
+
+    /**
+     * Profiles a statement. A prepared statement has its stats resolved when it's prepared, a plain statement
+     * resolves them by the SQL of every execution. A batch of a plain statement is counted in the stats of its
+     * first SQL.
+     */
+    private class ProfilingStatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Object connectionProxy;
+        private final StatementStats preparedStats;
+        private StatementStats batchStats;
+        private Object[] bindValues;
+        private int bindCount;
+        private int batchSize;
+
+        ProfilingStatementHandler(Statement statement, Object connectionProxy, StatementStats preparedStats) {
+            this.statement = statement;
+            this.connectionProxy = connectionProxy;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    return execute(proxy, method, args);
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return executeBatch(method, args);
+                case "addBatch":
+                    if (batchStats == null) {
+                        batchStats = args == null ? preparedStats : findStats((String) args[0]);
+                    }
+                    batchSize++;
+                    return JdbcProxies.invoke(statement, method, args);
+                case "clearBatch":
+                    batchSize = 0;
+                    batchStats = null;
+                    return JdbcProxies.invoke(statement, method, args);
+                case "clearParameters":
+                    clearBindValues();
+                    return JdbcProxies.invoke(statement, method, args);
+                case "getResultSet":
+                    return wrapResultSet(proxy, (ResultSet) JdbcProxies.invoke(statement, method, args),
+                            preparedStats);
+                case "getConnection":
+                    return connectionProxy != null ? connectionProxy : JdbcProxies.invoke(statement, method, args);
+                case "unwrap":
+                    return JdbcProxies.unwrap(proxy, statement, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return JdbcProxies.isWrapperFor(proxy, statement, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (isParameterSetter(method, args)) {
+                        bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    return JdbcProxies.invoke(statement, method, args);
+            }
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            StatementStats stats = args == null ? preparedStats : findStats((String) args[0]);
+            long startNanos = System.nanoTime();
+            Object result = JdbcProxies.invoke(statement, method, args);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            stats.latency.record(elapsedNanos);
+            if (result instanceof Number) {
+                stats.rows.add(((Number) result).longValue());
+            }
+            if (elapsedNanos >= slowThresholdNanos) {
+                stats.slowExecutions.increment();
+                logSlowExecution(stats, elapsedNanos, args == null ? formatBindValues() : "none");
+            }
+            return result instanceof ResultSet ? wrapResultSet(proxy, (ResultSet) result, stats) : result;
+        }
+
+        private Object executeBatch(Method method, Object[] args) throws Throwable {
+            StatementStats stats = batchStats;
+            int executedStatements = batchSize;
+            batchStats = null;
+            batchSize = 0;
+            if (stats == null) {
+                return JdbcProxies.invoke(statement, method, args);
+            }
+            long startNanos = System.nanoTime();
+            Object result = JdbcProxies.invoke(statement, method, args);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            stats.latency.record(elapsedNanos);
+            stats.batches.increment();
+            stats.batchedStatements.add(executedStatements);
+            stats.rows.add(sumUpdateCounts(result));
+            if (elapsedNanos >= slowThresholdNanos) {
+                stats.slowExecutions.increment();
+                logSlowExecution(stats, elapsedNanos, "batch of " + executedStatements);
+            }
+            return result;
+        }
+
+        private long sumUpdateCounts(Object updateCounts) {
+            long rows = 0;
+            if (updateCounts instanceof int[]) {
+                for (int count : (int[]) updateCounts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (updateCounts instanceof long[]) {
+                for (long count : (long[]) updateCounts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Parameter setters of {@link PreparedStatement} take the 1-based index first, and the value second (except
+         * {@code setNull}, that takes the SQL type). Named parameters of {@link java.sql.CallableStatement} are not
+         * recorded.
+         */
+        private boolean isParameterSetter(Method method, Object[] args) {
+            return method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set")
+                    && args != null && args.length >= 2 && args[0] instanceof Integer;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (bindValues == null) {
+                bindValues = new Object[Math.max(index, 8)];
+            } else if (index > bindValues.length) {
+                bindValues = Arrays.copyOf(bindValues, Math.max(index, bindValues.length * 2));
+            }
+            bindValues[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private void clearBindValues() {
+            if (bindCount > 0) {
+                Arrays.fill(bindValues, 0, bindCount, null);
+            }
+            bindCount = 0;
+        }
+
+        private String formatBindValues() {
+            StringBuilder values = new StringBuilder("[");
+            for (int i = 0; i < bindCount; i++) {
+                if (i > 0) {
+                    values.append(", ");
+                }
+                Object value = bindValues[i];
+                String text = value instanceof String ? "'" + value + "'" : String.valueOf(value);
+                values.append(text.length() > MAX_LOGGED_VALUE_LENGTH
+                        ? text.substring(0, MAX_LOGGED_VALUE_LENGTH) + "..." : text);
+            }
+            return values.append(']').toString();
+        }
+
+        private void logSlowExecution(StatementStats stats, long elapsedNanos, String parameters) {
+            slowStatementLog.accept(String.format("Slow statement took %d ms: %s; parameters: %s",
+                    Duration.ofNanos(elapsedNanos).toMillis(), stats.sql, parameters));
+        }
+    }
+
+    private static ResultSet wrapResultSet(Object statementProxy, ResultSet resultSet, StatementStats stats) {
+        if (resultSet == null || stats == null) {
+            return resultSet;
+        }
+        return JdbcProxies.createProxy(ResultSet.class, new RowCountingHandler(resultSet, statementProxy, stats));
+    }
+
+    /**
+     * Counts rows that are read from a result set
+     */
+    private static class RowCountingHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Object statementProxy;
+        private final StatementStats stats;
+
+        RowCountingHandler(ResultSet resultSet, Object statementProxy, StatementStats stats) {
+            this.resultSet = resultSet;
+            this.statementProxy = statementProxy;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = resultSet.next();
+                    if (hasRow) {
+                        stats.rows.increment();
+                    }
+                    return hasRow;
+                case "getStatement":
+                    return statementProxy;
+                case "unwrap":
+                    return JdbcProxies.unwrap(proxy, resultSet, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return JdbcProxies.isWrapperFor(proxy, resultSet, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return JdbcProxies.invoke(resultSet, method, args);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return targetDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,69 @@
+package com.bobocode.util.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@link SqlNormalizer} turns SQL into a shape that identifies a statement in metrics: string and numeric literals
+ * become {@code ?}, whitespace runs become one space, and lists of placeholders (e.g. {@code IN (?, ?, ?)}) become
+ * {@code (?)}, so that statements that differ only by values or by the length of an IN list are counted together.
+ */
+class SqlNormalizer {
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\?(?:, \\?)+\\)");
+
+    private SqlNormalizer() {
+    }
+
+    static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char ch = sql.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (normalized.length() > 0 && i < sql.length()) {
+                    normalized.append(' ');
+                }
+            } else if (ch == '\'') {
+                i = skipStringLiteral(sql, i);
+                normalized.append('?');
+            } else if (Character.isDigit(ch) && !isPartOfIdentifier(normalized)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+            } else {
+                if (ch == ',' && normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == ' ') {
+                    normalized.setLength(normalized.length() - 1);
+                }
+                normalized.append(ch);
+                i++;
+            }
+        }
+        return PLACEHOLDER_LIST.matcher(normalized).replaceAll("(?)");
+    }
+
+    private static int skipStringLiteral(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder normalized) {
+        if (normalized.length() == 0) {
+            return false;
+        }
+        char previous = normalized.charAt(normalized.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+}
@@ -0,0 +1,24 @@
+package com.bobocode.util.metrics;
+
+import lombok.Value;
+
+/**
+ * {@link StatementMetrics} is a snapshot of the metrics that {@link ProfilingDataSource} collected for one normalized
+ * SQL statement. A batch is one execution, its statements are counted in {@code batchedStatements}.
+ */
+@Value
+public class StatementMetrics {
+    String sql;
+    HistogramSnapshot latency;
+    /**
+     * Rows returned by queries and rows affected by updates
+     */
+    long rows;
+    long batches;
+    long batchedStatements;
+    long slowExecutions;
+
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) batchedStatements / batches;
+    }
+}
@@ -0,0 +1,433 @@
+package com.bobocode.util.migration;
+
+import com.bobocode.util.Dialect;
+import com.bobocode.util.FileReader;
+import com.bobocode.util.FileReaderException;
+import com.bobocode.util.script.SqlScriptRunner;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link SchemaLedger} remembers which SQL scripts were applied to a database and their checksums, so a script is
+ * executed only when it's new or changed. On a database that is up-to-date applying a script costs one primary key
+ * lookup in the ledger table.
+ * <p>
+ * When a script has to be applied, the ledger takes a lock so that concurrent nodes don't run the same script at
+ * the same time: a session-level advisory lock on PostgreSQL, and a row in a lock table on other databases. A lock
+ * row older than {@code staleLockTimeout} is considered abandoned by a crashed node and is removed, so the node that
+ * holds the lock refreshes its row from another connection every third of {@code staleLockTimeout}, however long the
+ * script runs. If the row is lost anyway (e.g. the refreshes failed for too long), the script is not recorded and
+ * {@link #applyFromResources(String)} fails, and the row of the node that took the lock over is left in place.
+ */
+public class SchemaLedger {
+    public static final String DEFAULT_TABLE_NAME = "schema_ledger";
+    private static final Duration LOCK_RETRY_INTERVAL = Duration.ofMillis(100);
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+    private static final Set<String> TABLE_NOT_FOUND_SQL_STATES = Set.of("42S02", "42P01");
+
+    private final DataSource dataSource;
+    private final String tableName;
+    private final Duration lockTimeout;
+    private final Duration staleLockTimeout;
+    private final SqlScriptRunner scriptRunner;
+
+    public SchemaLedger(DataSource dataSource) {
+        this(dataSource, DEFAULT_TABLE_NAME, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    /**
+     * @param dataSource       a data source of the database
+     * @param tableName        name of the ledger table, the lock table gets the {@code _lock} suffix
+     * @param lockTimeout      max time to wait for the lock held by another node
+     * @param staleLockTimeout age of a lock row after which it's considered abandoned
+     */
+    public SchemaLedger(DataSource dataSource, String tableName, Duration lockTimeout, Duration staleLockTimeout) {
+        this.dataSource = dataSource;
+        this.tableName = tableName;
+        this.lockTimeout = lockTimeout;
+        this.staleLockTimeout = staleLockTimeout;
+        this.scriptRunner = new SqlScriptRunner(dataSource);
+    }
+
+    /**
+     * Executes a script from resources unless the ledger already has it with the same checksum
+     *
+     * @param scriptName a name of the script file in resources, it's also the key in the ledger
+     * @return {@code true} if the script was executed, {@code false} if it was skipped
+     */
+    public boolean applyFromResources(String scriptName) throws SQLException {
+        return applyFromResources(scriptName, (connection, reader) -> scriptRunner.run(connection, reader, result -> {
+        }));
+    }
+
+    /**
+     * Same as {@link #applyFromResources(String)}, but the script is executed by provided executor, e.g. by
+     * {@link com.bobocode.util.script.ParallelDdlRunner} that uses its own connections. The ledger lock is held for
+     * the whole execution anyway.
+     *
+     * @param scriptName     a name of the script file in resources, it's also the key in the ledger
+     * @param scriptExecutor executes the script
+     * @return {@code true} if the script was executed, {@code false} if it was skipped
+     */
+    public boolean applyFromResources(String scriptName, ScriptExecutor scriptExecutor) throws SQLException {
+        String checksum = computeChecksum(scriptName);
+        try (Connection connection = dataSource.getConnection()) {
+            if (isApplied(connection, scriptName, checksum)) {
+                return false;
+            }
+            Dialect dialect = Dialect.of(connection);
+            createLedgerTables(connection);
+            Timestamp lockedAt = lock(connection, dialect);
+            LockRefresher lockRefresher = lockedAt != null ? new LockRefresher(lockedAt) : null;
+            Throwable failure = null;
+            try {
+                if (isApplied(connection, scriptName, checksum)) {
+                    return false;
+                }
+                long startNanos = System.nanoTime();
+                runScript(connection, scriptName, scriptExecutor);
+                long executionMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+                if (lockRefresher != null && lockRefresher.isLost()) {
+                    throw new SQLException(String.format("Lock of %s was lost while script %s was running, " +
+                            "the script is not recorded", tableName, scriptName));
+                }
+                record(connection, scriptName, checksum, executionMillis);
+                return true;
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                releaseLock(connection, dialect, lockRefresher, failure);
+            }
+        }
+    }
+
+    /**
+     * An error of the unlock doesn't replace the error of the script, it's added to it as suppressed
+     */
+    private void releaseLock(Connection connection, Dialect dialect, LockRefresher lockRefresher, Throwable failure)
+            throws SQLException {
+        try {
+            Timestamp lockedAt = null;
+            if (lockRefresher != null) {
+                lockRefresher.stop();
+                lockedAt = lockRefresher.getLockedAt();
+            }
+            unlock(connection, dialect, lockedAt);
+        } catch (SQLException | RuntimeException e) {
+            if (failure == null) {
+                throw e;
+            }
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * @return the checksum of the script stored in the ledger, or {@code null} if the script was never applied
+     */
+    public String findChecksum(String scriptName) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return selectChecksum(connection, scriptName);
+        }
+    }
+
+    private String computeChecksum(String scriptName) {
+        MessageDigest digest = createDigest();
+        try (BufferedReader reader = FileReader.openReaderFromResources(scriptName)) {
+            CharBuffer buffer = CharBuffer.allocate(8192);
+            while (reader.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(StandardCharsets.UTF_8.encode(buffer));
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new FileReaderException(String.format("Cannot read script %s", scriptName), e);
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * The ledger table doesn't exist on a fresh database, so a lookup that fails with "table not found" means
+     * "not applied". Other errors are thrown, a lost connection must not make the script run again.
+     */
+    private boolean isApplied(Connection connection, String scriptName, String checksum) throws SQLException {
+        try {
+            return checksum.equals(selectChecksum(connection, scriptName));
+        } catch (SQLException e) {
+            if (TABLE_NOT_FOUND_SQL_STATES.contains(e.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private String selectChecksum(Connection connection, String scriptName) throws SQLException {
+        String sql = String.format("SELECT checksum FROM %s WHERE script_name = ?", tableName);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, scriptName);
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private void createLedgerTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                    "script_name VARCHAR(255) NOT NULL, " +
+                    "checksum VARCHAR(64) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL, " +
+                    "execution_millis BIGINT NOT NULL, " +
+                    "CONSTRAINT %s_pk PRIMARY KEY (script_name))", tableName, tableName));
+            statement.execute(String.format("CREATE TABLE IF NOT EXISTS %s_lock (" +
+                    "id INT NOT NULL, " +
+                    "locked_at TIMESTAMP NOT NULL, " +
+                    "CONSTRAINT %s_lock_pk PRIMARY KEY (id))", tableName, tableName));
+        }
+    }
+
+    private void runScript(Connection connection, String scriptName, ScriptExecutor scriptExecutor)
+            throws SQLException {
+        try (BufferedReader reader = FileReader.openReaderFromResources(scriptName)) {
+            scriptExecutor.execute(connection, reader);
+        } catch (IOException e) {
+            throw new FileReaderException(String.format("Cannot read script %s", scriptName), e);
+        }
+    }
+
+    private void record(Connection connection, String scriptName, String checksum, long executionMillis)
+            throws SQLException {
+        Timestamp appliedAt = Timestamp.from(Instant.now());
+        String updateSql = String.format("UPDATE %s SET checksum = ?, applied_at = ?, execution_millis = ? " +
+                "WHERE script_name = ?", tableName);
+        try (PreparedStatement update = connection.prepareStatement(updateSql)) {
+            update.setString(1, checksum);
+            update.setTimestamp(2, appliedAt);
+            update.setLong(3, executionMillis);
+            update.setString(4, scriptName);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        String insertSql = String.format("INSERT INTO %s (script_name, checksum, applied_at, execution_millis) " +
+                "VALUES (?, ?, ?, ?)", tableName);
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            insert.setString(1, scriptName);
+            insert.setString(2, checksum);
+            insert.setTimestamp(3, appliedAt);
+            insert.setLong(4, executionMillis);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the time that the lock row was written with, or {@code null} for the advisory lock of PostgreSQL
+     */
+    private Timestamp lock(Connection connection, Dialect dialect) throws SQLException {
+        long deadlineNanos = System.nanoTime() + lockTimeout.toNanos();
+        while (true) {
+            if (dialect == Dialect.POSTGRESQL) {
+                if (tryAdvisoryLock(connection)) {
+                    return null;
+                }
+            } else {
+                Timestamp lockedAt = now();
+                if (tryInsertLockRow(connection, lockedAt)) {
+                    return lockedAt;
+                }
+            }
+            if (System.nanoTime() > deadlineNanos) {
+                throw new SQLTimeoutException(String.format("Cannot lock %s within %d ms", tableName,
+                        lockTimeout.toMillis()));
+            }
+            sleep(LOCK_RETRY_INTERVAL);
+        }
+    }
+
+    private boolean tryAdvisoryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, advisoryLockKey());
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+
+    /**
+     * Only a duplicate key means that another node holds the lock, other errors are thrown
+     */
+    private boolean tryInsertLockRow(Connection connection, Timestamp lockedAt) throws SQLException {
+        String insertSql = String.format("INSERT INTO %s_lock (id, locked_at) VALUES (1, ?)", tableName);
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            insert.setTimestamp(1, lockedAt);
+            insert.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (!UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+                throw e;
+            }
+            removeStaleLock(connection);
+            return false;
+        }
+    }
+
+    /**
+     * Truncated to millis, so that the time read back from the lock row is equal to the written one
+     */
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    private void removeStaleLock(Connection connection) throws SQLException {
+        String deleteSql = String.format("DELETE FROM %s_lock WHERE id = 1 AND locked_at < ?", tableName);
+        try (PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+            delete.setTimestamp(1, Timestamp.from(Instant.now().minus(staleLockTimeout)));
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * A lock row is deleted only while it has the time this node wrote, so a lock that went stale and was taken by
+     * another node is left to that node
+     *
+     * @param lockedAt the last time written to the lock row, {@code null} for the advisory lock of PostgreSQL
+     */
+    private void unlock(Connection connection, Dialect dialect, Timestamp lockedAt) throws SQLException {
+        String sql = dialect == Dialect.POSTGRESQL
+                ? "SELECT pg_advisory_unlock(?)"
+                : String.format("DELETE FROM %s_lock WHERE id = 1 AND locked_at = ?", tableName);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (dialect == Dialect.POSTGRESQL) {
+                statement.setLong(1, advisoryLockKey());
+            } else {
+                statement.setTimestamp(1, lockedAt);
+            }
+            statement.execute();
+        }
+    }
+
+    private long advisoryLockKey() {
+        return tableName.hashCode();
+    }
+
+    private static void sleep(Duration duration) throws SQLException {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTimeoutException("Interrupted while waiting for the schema ledger lock", e);
+        }
+    }
+
+    /**
+     * Keeps the lock row of this node fresh while a script runs. The locked connection is busy running the script, so
+     * the row is refreshed from another one. A row is refreshed only while it has the time this node wrote: once an
+     * update finds no such row, the lock is lost and is never taken back.
+     */
+    private class LockRefresher {
+        private final ScheduledExecutorService executor;
+        private final AtomicReference<Timestamp> lockedAt;
+        private volatile boolean lost;
+
+        LockRefresher(Timestamp lockedAt) {
+            this.lockedAt = new AtomicReference<>(lockedAt);
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "schema-ledger-lock-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = Math.max(staleLockTimeout.toMillis() / 3, 1);
+            executor.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * A failed refresh is retried on the next run, the lock is lost only if all of them fail for
+         * {@code staleLockTimeout}
+         */
+        private void refresh() {
+            if (lost) {
+                return;
+            }
+            String updateSql = String.format("UPDATE %s_lock SET locked_at = ? WHERE id = 1 AND locked_at = ?",
+                    tableName);
+            Timestamp refreshedAt = now();
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement update = connection.prepareStatement(updateSql)) {
+                update.setTimestamp(1, refreshedAt);
+                update.setTimestamp(2, lockedAt.get());
+                if (update.executeUpdate() > 0) {
+                    lockedAt.set(refreshedAt);
+                } else {
+                    lost = true;
+                }
+            } catch (SQLException e) {
+                // the next run retries
+            }
+        }
+
+        boolean isLost() {
+            return lost;
+        }
+
+        Timestamp getLockedAt() {
+            return lockedAt.get();
+        }
+
+        /**
+         * Waits for a running refresh, so that {@link #getLockedAt()} is the time that is in the lock row
+         */
+        void stop() throws SQLException {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(lockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new SQLTimeoutException(String.format("Lock refresher of %s did not stop within %d ms",
+                            tableName, lockTimeout.toMillis()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTimeoutException("Interrupted while stopping the schema ledger lock refresher", e);
+            }
+        }
+    }
+
+    /**
+     * Executes a script while the ledger lock is held
+     */
+    @FunctionalInterface
+    public interface ScriptExecutor {
+        /**
+         * @param lockedConnection the connection that holds the ledger lock, it must not be closed
+         * @param script           script source
+         */
+        void execute(Connection lockedConnection, Reader script) throws SQLException;
+    }
+}
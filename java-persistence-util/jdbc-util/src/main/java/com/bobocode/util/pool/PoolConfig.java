@@ -0,0 +1,72 @@
+package com.bobocode.util.pool;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * {@link PoolConfig} holds settings of a {@link PooledDataSource}. All the settings have defaults, so
+ * {@code PoolConfig.builder().build()} gives a ready to use configuration.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PoolConfig {
+    /**
+     * Number of idle connections that the pool tries to keep open
+     */
+    @Builder.Default
+    int minIdle = 2;
+    /**
+     * Maximum number of physical connections (idle and in-use)
+     */
+    @Builder.Default
+    int maxSize = 10;
+    /**
+     * An idle connection is closed after this time if the pool has more than {@link #minIdle} connections
+     */
+    @Builder.Default
+    Duration idleTimeout = Duration.ofMinutes(10);
+    /**
+     * Maximum time that {@link PooledDataSource#getConnection()} waits for a free connection
+     */
+    @Builder.Default
+    Duration borrowTimeout = Duration.ofSeconds(30);
+    /**
+     * Whether a connection is checked with {@link java.sql.Connection#isValid(int)} before it's handed out
+     */
+    @Builder.Default
+    boolean validateOnBorrow = true;
+    /**
+     * Connections returned to the pool more recently than this are handed out without validation
+     */
+    @Builder.Default
+    Duration validationInterval = Duration.ofMillis(500);
+    /**
+     * Timeout of a single {@link java.sql.Connection#isValid(int)} call
+     */
+    @Builder.Default
+    Duration validationTimeout = Duration.ofSeconds(5);
+    /**
+     * A connection that is not returned to the pool during this time is reported as a possible leak.
+     * {@link Duration#ZERO} disables leak detection.
+     */
+    @Builder.Default
+    Duration leakDetectionThreshold = Duration.ZERO;
+    /**
+     * How often the pool evicts idle connections, fills up {@link #minIdle} and checks for leaks
+     */
+    @Builder.Default
+    Duration housekeepingPeriod = Duration.ofSeconds(30);
+    /**
+     * Max number of prepared statements cached per connection. Zero disables the cache.
+     *
+     * @see com.bobocode.util.statement.StatementCachingDataSource
+     */
+    @Builder.Default
+    int statementCacheSize = 0;
+
+    boolean isLeakDetectionEnabled() {
+        return !leakDetectionThreshold.isZero();
+    }
+}
@@ -0,0 +1,204 @@
+package com.bobocode.util.pool;
+
+import com.bobocode.util.JdbcProxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link PooledConnection} is a physical connection owned by {@link PooledDataSource}. Each time it's borrowed
+ * the pool hands out a new logical handle (a {@link Connection} proxy), so closing the handle twice or using it after
+ * close never affects the next borrower.
+ */
+class PooledConnection {
+    private static final int MIN_TRACKED_STATEMENTS = 16;
+
+    private final PooledDataSource pool;
+    private final Connection physicalConnection;
+    private final int defaultTransactionIsolation;
+    private final String defaultCatalog;
+    private final String defaultSchema;
+    private final long createdAtNanos;
+    private volatile long lastReturnedAtNanos;
+    private volatile long borrowedAtNanos;
+    private volatile Throwable borrowStackTrace;
+    private volatile boolean leakReported;
+
+    /**
+     * The state of a new physical connection is remembered as the default one, that {@link #resetState()} restores
+     */
+    PooledConnection(PooledDataSource pool, Connection physicalConnection) throws SQLException {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.defaultTransactionIsolation = physicalConnection.getTransactionIsolation();
+        this.defaultCatalog = physicalConnection.getCatalog();
+        this.defaultSchema = physicalConnection.getSchema();
+        this.createdAtNanos = System.nanoTime();
+        this.lastReturnedAtNanos = createdAtNanos;
+    }
+
+    Connection getPhysicalConnection() {
+        return physicalConnection;
+    }
+
+    long getCreatedAtNanos() {
+        return createdAtNanos;
+    }
+
+    long getLastReturnedAtNanos() {
+        return lastReturnedAtNanos;
+    }
+
+    long getBorrowedAtNanos() {
+        return borrowedAtNanos;
+    }
+
+    Throwable getBorrowStackTrace() {
+        return borrowStackTrace;
+    }
+
+    boolean markLeakReported() {
+        if (leakReported) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+
+    Connection borrow(boolean captureStackTrace) {
+        borrowedAtNanos = System.nanoTime();
+        borrowStackTrace = captureStackTrace ? new Throwable("Connection was borrowed here") : null;
+        leakReported = false;
+        return JdbcProxies.createProxy(Connection.class, new ConnectionHandle());
+    }
+
+    void markReturned() {
+        borrowedAtNanos = 0;
+        borrowStackTrace = null;
+        lastReturnedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Brings the physical connection back to the default state, so the next borrower doesn't inherit an open
+     * transaction, a read-only flag, a transaction isolation level, a catalog or a schema.
+     */
+    void resetState() throws SQLException {
+        if (!physicalConnection.getAutoCommit()) {
+            physicalConnection.rollback();
+            physicalConnection.setAutoCommit(true);
+        }
+        if (physicalConnection.isReadOnly()) {
+            physicalConnection.setReadOnly(false);
+        }
+        if (physicalConnection.getTransactionIsolation() != defaultTransactionIsolation) {
+            physicalConnection.setTransactionIsolation(defaultTransactionIsolation);
+        }
+        if (!Objects.equals(physicalConnection.getCatalog(), defaultCatalog)) {
+            physicalConnection.setCatalog(defaultCatalog);
+        }
+        if (!Objects.equals(physicalConnection.getSchema(), defaultSchema)) {
+            physicalConnection.setSchema(defaultSchema);
+        }
+        physicalConnection.clearWarnings();
+    }
+
+    void closePhysicalConnection() {
+        try {
+            physicalConnection.close();
+        } catch (SQLException ignored) {
+            // the connection is discarded anyway
+        }
+    }
+
+    private class ConnectionHandle implements InvocationHandler {
+        private final List<Statement> openStatements = new ArrayList<>();
+        private int pruneThreshold = MIN_TRACKED_STATEMENTS;
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || physicalConnection.isClosed();
+                case "unwrap":
+                    return JdbcProxies.unwrap(proxy, physicalConnection, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return JdbcProxies.isWrapperFor(proxy, physicalConnection, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physicalConnection;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            Object result = JdbcProxies.invoke(physicalConnection, method, args);
+            if (result instanceof Statement) {
+                track((Statement) result);
+            }
+            return result;
+        }
+
+        /**
+         * Statements are returned unwrapped, so their close is not seen here. Instead, closed statements are dropped
+         * from the list each time it doubles, that keeps it as long as the open statements and costs O(1) per
+         * statement on average.
+         */
+        private void track(Statement statement) {
+            if (openStatements.size() >= pruneThreshold) {
+                Iterator<Statement> iterator = openStatements.iterator();
+                while (iterator.hasNext()) {
+                    if (isClosed(iterator.next())) {
+                        iterator.remove();
+                    }
+                }
+                pruneThreshold = Math.max(MIN_TRACKED_STATEMENTS, openStatements.size() * 2);
+            }
+            openStatements.add(statement);
+        }
+
+        private boolean isClosed(Statement statement) {
+            try {
+                return statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeOpenStatements();
+            pool.release(PooledConnection.this);
+        }
+
+        /**
+         * Closes the statements that a borrower forgot to close, otherwise they would pile up on a connection
+         * that is never closed physically.
+         */
+        private void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // the statement is abandoned anyway
+                }
+            }
+            openStatements.clear();
+        }
+    }
+}
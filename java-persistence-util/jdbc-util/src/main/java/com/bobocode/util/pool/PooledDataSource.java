@@ -0,0 +1,313 @@
+package com.bobocode.util.pool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * {@link PooledDataSource} is a {@link DataSource} that keeps physical connections of a target {@link DataSource}
+ * open and reuses them. Calling {@link Connection#close()} on a connection returned by {@link #getConnection()} gives
+ * the connection back to the pool instead of closing it.
+ * <p>
+ * The pool keeps at most {@link PoolConfig#getMaxSize()} connections, evicts connections that stay idle longer than
+ * {@link PoolConfig#getIdleTimeout()}, optionally validates connections on borrow, waits for a free connection not
+ * longer than {@link PoolConfig#getBorrowTimeout()} and reports connections that are not returned in time.
+ */
+@Slf4j
+public class PooledDataSource implements DataSource, AutoCloseable {
+    private final DataSource targetDataSource;
+    private final PoolConfig config;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> allConnections = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private final LongAdder reportedLeaks = new LongAdder();
+    private volatile boolean closed;
+
+    public PooledDataSource(DataSource targetDataSource, PoolConfig config) {
+        validateConfig(config);
+        this.targetDataSource = targetDataSource;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = config.getHousekeepingPeriod().toMillis();
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void validateConfig(PoolConfig config) {
+        if (config.getMaxSize() <= 0) {
+            throw new IllegalArgumentException("Max pool size should be positive");
+        }
+        if (config.getMinIdle() < 0 || config.getMinIdle() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Min idle should be between 0 and max pool size");
+        }
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        acquirePermit();
+        try {
+            PooledConnection pooledConnection = takeIdleOrCreate();
+            return pooledConnection.borrow(config.isLeakDetectionEnabled());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        long timeoutMillis = config.getBorrowTimeout().toMillis();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(String.format(
+                        "Cannot get a connection within %d ms (max pool size = %d, in use = %d)",
+                        timeoutMillis, config.getMaxSize(), getActiveConnections()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            if (isUsable(pooledConnection)) {
+                return pooledConnection;
+            }
+            destroy(pooledConnection);
+        }
+        return createPooledConnection();
+    }
+
+    private boolean isUsable(PooledConnection pooledConnection) {
+        if (!config.isValidateOnBorrow()) {
+            return true;
+        }
+        long idleNanos = System.nanoTime() - pooledConnection.getLastReturnedAtNanos();
+        if (idleNanos < config.getValidationInterval().toNanos()) {
+            return true;
+        }
+        try {
+            int timeoutSeconds = (int) Math.max(1, config.getValidationTimeout().toSeconds());
+            return pooledConnection.getPhysicalConnection().isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection physicalConnection = targetDataSource.getConnection();
+        PooledConnection pooledConnection;
+        try {
+            pooledConnection = new PooledConnection(this, physicalConnection);
+        } catch (SQLException | RuntimeException e) {
+            physicalConnection.close();
+            throw e;
+        }
+        allConnections.add(pooledConnection);
+        return pooledConnection;
+    }
+
+    void release(PooledConnection pooledConnection) {
+        try {
+            pooledConnection.markReturned();
+            if (closed) {
+                destroy(pooledConnection);
+                return;
+            }
+            try {
+                pooledConnection.resetState();
+                idleConnections.offerFirst(pooledConnection);
+            } catch (SQLException e) {
+                log.warn("Discarding a connection that cannot be reset", e);
+                destroy(pooledConnection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooledConnection) {
+        allConnections.remove(pooledConnection);
+        pooledConnection.closePhysicalConnection();
+    }
+
+    private void houseKeep() {
+        try {
+            evictIdleConnections();
+            fillMinIdle();
+            reportLeaks();
+        } catch (RuntimeException e) {
+            log.warn("Connection pool housekeeping failed", e);
+        }
+    }
+
+    /**
+     * Closes the oldest idle connections that exceeded idle timeout while the pool is above min idle. A connection
+     * removed from the idle deque cannot be borrowed concurrently, because both operations remove it atomically.
+     */
+    private void evictIdleConnections() {
+        long idleTimeoutNanos = config.getIdleTimeout().toNanos();
+        for (PooledConnection idle : idleConnections) {
+            boolean expired = System.nanoTime() - idle.getLastReturnedAtNanos() > idleTimeoutNanos;
+            if (expired && allConnections.size() > config.getMinIdle() && idleConnections.remove(idle)) {
+                destroy(idle);
+            }
+        }
+    }
+
+    private void fillMinIdle() {
+        while (!closed && idleConnections.size() < config.getMinIdle() && permits.tryAcquire()) {
+            try {
+                if (allConnections.size() >= config.getMaxSize()) {
+                    return;
+                }
+                PooledConnection pooledConnection = createPooledConnection();
+                idleConnections.offerLast(pooledConnection);
+            } catch (SQLException e) {
+                log.warn("Cannot open an idle connection", e);
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void reportLeaks() {
+        if (!config.isLeakDetectionEnabled()) {
+            return;
+        }
+        long thresholdNanos = config.getLeakDetectionThreshold().toNanos();
+        for (PooledConnection pooledConnection : allConnections) {
+            long borrowedAtNanos = pooledConnection.getBorrowedAtNanos();
+            if (borrowedAtNanos != 0 && System.nanoTime() - borrowedAtNanos > thresholdNanos
+                    && pooledConnection.markLeakReported()) {
+                reportedLeaks.increment();
+                log.warn("Connection has not been returned to the pool for more than {} ms, possible leak",
+                        config.getLeakDetectionThreshold().toMillis(), pooledConnection.getBorrowStackTrace());
+            }
+        }
+    }
+
+    /**
+     * @return number of open physical connections, both idle and in use
+     */
+    public int getTotalConnections() {
+        return allConnections.size();
+    }
+
+    /**
+     * @return number of connections that can be borrowed without opening a new one
+     */
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return number of borrowed connections that are not returned yet
+     */
+    public int getActiveConnections() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    /**
+     * @return number of borrowed connections that were reported as possible leaks
+     */
+    public long getReportedLeaks() {
+        return reportedLeaks.sum();
+    }
+
+    /**
+     * @return number of threads that are waiting for a free connection
+     */
+    public int getThreadsAwaitingConnection() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            destroy(idle);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use the credentials of the pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return targetDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,135 @@
+package com.bobocode.util.routing;
+
+import com.bobocode.util.JdbcProxies;
+import com.bobocode.util.routing.ReadWriteRoutingDataSource.RoutedConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link LazyRoutingConnectionHandler} backs a lazy connection of {@link ReadWriteRoutingDataSource}. Until the
+ * connection is really used it only remembers the settings, then it opens a connection to the primary or to a replica
+ * and applies those settings.
+ * <p>
+ * A connection opened on a replica cannot become read-write. In auto-commit mode {@code setReadOnly(false)} closes the
+ * replica connection, together with statements created on it, and the next call opens a connection to the primary.
+ * Within a transaction it throws {@link SQLException}, as the transaction cannot move to another database.
+ */
+class LazyRoutingConnectionHandler implements InvocationHandler {
+    private final ReadWriteRoutingDataSource dataSource;
+    private RoutedConnection target;
+    private boolean readOnly;
+    private boolean autoCommit = true;
+    private Integer transactionIsolation;
+    private boolean closed;
+
+    LazyRoutingConnectionHandler(ReadWriteRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return target != null ? "Routed" + target.connection : "Lazy routed connection";
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+        }
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+        if (target != null && target.replicaIndex >= 0
+                && "setReadOnly".equals(method.getName()) && !(Boolean) args[0]) {
+            releaseReplica();
+            return null;
+        }
+        if (target == null) {
+            switch (method.getName()) {
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setTransactionIsolation":
+                    transactionIsolation = (Integer) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                    if (args == null) {
+                        return null;
+                    }
+            }
+            target = openTarget();
+        }
+        Connection connection = target.connection;
+        switch (method.getName()) {
+            case "unwrap":
+                return JdbcProxies.unwrap(proxy, connection, (Class<?>) args[0]);
+            case "isWrapperFor":
+                return JdbcProxies.isWrapperFor(proxy, connection, (Class<?>) args[0]);
+            case "setReadOnly":
+                readOnly = (Boolean) args[0];
+                break;
+            case "setAutoCommit":
+                autoCommit = (Boolean) args[0];
+                break;
+            case "setTransactionIsolation":
+                transactionIsolation = (Integer) args[0];
+                break;
+        }
+        return JdbcProxies.invoke(connection, method, args);
+    }
+
+    private void releaseReplica() throws SQLException {
+        if (!autoCommit) {
+            throw new SQLException("Cannot switch a transaction opened on a replica to read-write");
+        }
+        RoutedConnection replicaTarget = target;
+        target = null;
+        readOnly = false;
+        dataSource.onClose(replicaTarget, true);
+        replicaTarget.connection.close();
+    }
+
+    private RoutedConnection openTarget() throws SQLException {
+        RoutedConnection routedConnection = dataSource.openTargetConnection(readOnly);
+        try {
+            Connection connection = routedConnection.connection;
+            connection.setReadOnly(readOnly);
+            connection.setAutoCommit(autoCommit);
+            if (transactionIsolation != null) {
+                connection.setTransactionIsolation(transactionIsolation);
+            }
+            return routedConnection;
+        } catch (SQLException e) {
+            dataSource.onClose(routedConnection, true);
+            routedConnection.connection.close();
+            throw e;
+        }
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (target != null) {
+            dataSource.onClose(target, readOnly);
+            target.connection.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.bobocode.util.routing;
+
+import com.bobocode.util.JdbcProxies;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * {@link ReadWriteRoutingDataSource} sends read-only connections to replicas and all other connections to the primary.
+ * <p>
+ * A connection returned by {@link #getConnection()} is lazy: it collects {@code setReadOnly}, {@code setAutoCommit}
+ * and {@code setTransactionIsolation} calls and picks the target database on the first statement. So the usual
+ * pattern works as is:
+ * <pre>{@code
+ * try (Connection connection = routingDataSource.getConnection()) {
+ *     connection.setReadOnly(true); // routed to a replica
+ *     ...
+ * }
+ * }</pre>
+ * After a thread has used a read-write connection, its read-only connections go to the primary during
+ * {@code stickyPrimaryWindow}, so the thread reads its own writes despite replication lag.
+ */
+public class ReadWriteRoutingDataSource implements DataSource {
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReplicaSelectionStrategy selectionStrategy;
+    private final long stickyPrimaryWindowNanos;
+    private final AtomicInteger[] replicaConnectionsInUse;
+    private final AtomicInteger nextReplicaIndex = new AtomicInteger();
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+
+    /**
+     * @param primary             a data source used for writes
+     * @param replicas            data sources used for read-only connections, can be empty
+     * @param selectionStrategy   how a replica is chosen
+     * @param stickyPrimaryWindow how long reads stay on the primary after a write in the same thread
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                      ReplicaSelectionStrategy selectionStrategy, Duration stickyPrimaryWindow) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selectionStrategy = selectionStrategy;
+        this.stickyPrimaryWindowNanos = stickyPrimaryWindow.toNanos();
+        this.replicaConnectionsInUse = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < replicaConnectionsInUse.length; i++) {
+            replicaConnectionsInUse[i] = new AtomicInteger();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return JdbcProxies.createProxy(Connection.class, new LazyRoutingConnectionHandler(this));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections always use the credentials of target data sources");
+    }
+
+    /**
+     * Opens a physical connection for a lazy connection that is about to be used
+     *
+     * @param readOnly whether the connection was marked as read-only
+     * @return opened connection
+     */
+    RoutedConnection openTargetConnection(boolean readOnly) throws SQLException {
+        if (!readOnly || replicas.isEmpty() || isWithinStickyPrimaryWindow()) {
+            return new RoutedConnection(primary.getConnection(), -1);
+        }
+        int replicaIndex = selectReplica();
+        replicaConnectionsInUse[replicaIndex].incrementAndGet();
+        try {
+            return new RoutedConnection(replicas.get(replicaIndex).getConnection(), replicaIndex);
+        } catch (SQLException | RuntimeException e) {
+            replicaConnectionsInUse[replicaIndex].decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isWithinStickyPrimaryWindow() {
+        Long writeNanos = lastWriteNanos.get();
+        return writeNanos != null && System.nanoTime() - writeNanos < stickyPrimaryWindowNanos;
+    }
+
+    private int selectReplica() {
+        if (selectionStrategy == ReplicaSelectionStrategy.ROUND_ROBIN) {
+            return Math.floorMod(nextReplicaIndex.getAndIncrement(), replicas.size());
+        }
+        int leastBusyIndex = 0;
+        for (int i = 1; i < replicaConnectionsInUse.length; i++) {
+            if (replicaConnectionsInUse[i].get() < replicaConnectionsInUse[leastBusyIndex].get()) {
+                leastBusyIndex = i;
+            }
+        }
+        return leastBusyIndex;
+    }
+
+    void onClose(RoutedConnection routedConnection, boolean readOnly) {
+        if (routedConnection.replicaIndex >= 0) {
+            replicaConnectionsInUse[routedConnection.replicaIndex].decrementAndGet();
+        } else if (!readOnly) {
+            lastWriteNanos.set(System.nanoTime());
+        }
+    }
+
+    /**
+     * @param replicaIndex index of a replica passed to the constructor
+     * @return number of connections that are currently open on that replica
+     */
+    public int getReplicaConnectionsInUse(int replicaIndex) {
+        return replicaConnectionsInUse[replicaIndex].get();
+    }
+
+    /**
+     * A physical connection and the replica it belongs to. Replica index is {@code -1} for the primary.
+     */
+    static class RoutedConnection {
+        final Connection connection;
+        final int replicaIndex;
+
+        RoutedConnection(Connection connection, int replicaIndex) {
+            this.connection = connection;
+            this.replicaIndex = replicaIndex;
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+        for (DataSource replica : replicas) {
+            replica.setLogWriter(out);
+        }
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+        for (DataSource replica : replicas) {
+            replica.setLoginTimeout(seconds);
+        }
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
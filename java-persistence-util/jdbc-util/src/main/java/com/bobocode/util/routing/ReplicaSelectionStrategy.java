@@ -0,0 +1,16 @@
+package com.bobocode.util.routing;
+
+/**
+ * {@link ReplicaSelectionStrategy} defines how {@link ReadWriteRoutingDataSource} picks a replica for a read-only
+ * connection.
+ */
+public enum ReplicaSelectionStrategy {
+    /**
+     * Replicas are used one after another
+     */
+    ROUND_ROBIN,
+    /**
+     * A replica with the smallest number of connections currently in use is chosen
+     */
+    LEAST_BUSY
+}
@@ -0,0 +1,146 @@
+package com.bobocode.util.script;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link DdlDependencyGraph} orders the statements of a DDL script as a dependency DAG, so that statements that don't
+ * depend on each other can be executed concurrently. The rules are:
+ * <ul>
+ * <li>{@code CREATE TABLE t} and {@code ALTER TABLE t} depend on the previous statement on {@code t} and on the
+ * statements that created the tables listed in their {@code REFERENCES} clauses</li>
+ * <li>{@code CREATE UNIQUE INDEX ... ON t} stays in script order the same way, as later statements can rely on it,
+ * e.g. a foreign key that references the indexed columns or an insert that expects duplicates to be rejected</li>
+ * <li>{@code CREATE INDEX ... ON t} is deferred to the index phase, that starts when all other statements are done</li>
+ * <li>any other statement (e.g. {@code INSERT} or {@code DROP}) is a barrier: it waits for all previous statements and
+ * all next statements wait for it</li>
+ * </ul>
+ */
+class DdlDependencyGraph {
+    private static final Pattern NAME = Pattern.compile("((?:\"[^\"]+\"|[\\w$]+)(?:\\.(?:\"[^\"]+\"|[\\w$]+))*)");
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "^CREATE\\s+(?:(?:GLOBAL|LOCAL)\\s+)?(?:(?:TEMP|TEMPORARY|CACHED|MEMORY|UNLOGGED)\\s+)?TABLE\\s+" +
+                    "(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALTER_TABLE = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(UNIQUE\\s+)?INDEX\\b.*?\\bON\\s+(?:ONLY\\s+)?" + NAME, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern REFERENCES = Pattern.compile("\\bREFERENCES\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+
+    private final List<Node> tableNodes = new ArrayList<>();
+    private final List<Node> indexNodes = new ArrayList<>();
+    private final Map<String, Node> lastNodeByTable = new HashMap<>();
+    private final List<Node> nodesSinceBarrier = new ArrayList<>();
+    private Node lastBarrier;
+
+    private DdlDependencyGraph() {
+    }
+
+    /**
+     * Builds a graph of script statements, keeping their order where it matters
+     */
+    static DdlDependencyGraph build(List<ScriptStatement> statements) {
+        DdlDependencyGraph graph = new DdlDependencyGraph();
+        statements.forEach(graph::add);
+        return graph;
+    }
+
+    /**
+     * @return all statements but non-unique indexes
+     */
+    List<Node> getTableNodes() {
+        return tableNodes;
+    }
+
+    /**
+     * @return non-unique index statements, that don't depend on each other
+     */
+    List<Node> getIndexNodes() {
+        return indexNodes;
+    }
+
+    private void add(ScriptStatement statement) {
+        String sql = statement.getSql();
+        Matcher indexMatcher = CREATE_INDEX.matcher(sql);
+        boolean index = indexMatcher.find();
+        if (index && indexMatcher.group(1) == null) {
+            indexNodes.add(new Node(statement));
+            return;
+        }
+        Node node = new Node(statement);
+        String table = index ? normalize(indexMatcher.group(2)) : findTable(sql);
+        if (table == null) {
+            addBarrier(node);
+            return;
+        }
+        dependOn(node, lastNodeByTable.get(table));
+        Matcher referencesMatcher = REFERENCES.matcher(sql);
+        while (referencesMatcher.find()) {
+            dependOn(node, lastNodeByTable.get(normalize(referencesMatcher.group(1))));
+        }
+        dependOn(node, lastBarrier);
+        lastNodeByTable.put(table, node);
+        nodesSinceBarrier.add(node);
+        tableNodes.add(node);
+    }
+
+    private void addBarrier(Node barrier) {
+        dependOn(barrier, lastBarrier);
+        nodesSinceBarrier.forEach(node -> dependOn(barrier, node));
+        nodesSinceBarrier.clear();
+        lastNodeByTable.clear();
+        lastBarrier = barrier;
+        tableNodes.add(barrier);
+    }
+
+    private static String findTable(String sql) {
+        Matcher createMatcher = CREATE_TABLE.matcher(sql);
+        if (createMatcher.find()) {
+            return normalize(createMatcher.group(1));
+        }
+        Matcher alterMatcher = ALTER_TABLE.matcher(sql);
+        return alterMatcher.find() ? normalize(alterMatcher.group(1)) : null;
+    }
+
+    /**
+     * Unquoted names are case-insensitive, so they are compared in lower case
+     */
+    private static String normalize(String name) {
+        return name.startsWith("\"") ? name : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static void dependOn(Node node, Node dependency) {
+        if (dependency != null && dependency != node && node.dependencies.add(dependency)) {
+            dependency.dependents.add(node);
+        }
+    }
+
+    static class Node {
+        private final ScriptStatement statement;
+        private final Set<Node> dependencies = new LinkedHashSet<>();
+        private final List<Node> dependents = new ArrayList<>();
+
+        Node(ScriptStatement statement) {
+            this.statement = statement;
+        }
+
+        ScriptStatement getStatement() {
+            return statement;
+        }
+
+        Set<Node> getDependencies() {
+            return dependencies;
+        }
+
+        List<Node> getDependents() {
+            return dependents;
+        }
+    }
+}
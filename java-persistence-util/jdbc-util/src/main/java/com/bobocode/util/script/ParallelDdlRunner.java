@@ -0,0 +1,200 @@
+package com.bobocode.util.script;
+
+import com.bobocode.util.FileReader;
+import com.bobocode.util.FileReaderException;
+import com.bobocode.util.script.DdlDependencyGraph.Node;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * {@link ParallelDdlRunner} executes a DDL script concurrently. Statements are ordered by {@link DdlDependencyGraph}
+ * using their {@code REFERENCES} clauses, and every statement starts as soon as the statements it depends on are
+ * done. Unique indexes keep their place in the script, as later statements may rely on them. Other indexes are
+ * deferred to a final phase, where they are created concurrently.
+ * <p>
+ * Each statement is executed in autocommit mode on its own connection of the data source, so the data source should
+ * be a pool that allows at least {@code parallelism} connections. Unlike {@link SqlScriptRunner}, the whole script is
+ * read before execution to build the graph, which is fine for DDL scripts. The first failed statement stops
+ * scheduling new statements, waits for the running ones and fails the script with {@link SqlScriptException}.
+ */
+public class ParallelDdlRunner {
+    private final DataSource dataSource;
+    private final int parallelism;
+
+    /**
+     * @param dataSource  a data source to run scripts on
+     * @param parallelism max number of statements executed at the same time
+     */
+    public ParallelDdlRunner(DataSource dataSource, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism should be positive");
+        }
+        this.dataSource = dataSource;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Executes a script file from resources
+     *
+     * @param fileName a name of the script file
+     * @return execution report
+     * @throws SqlScriptException if a statement fails
+     */
+    public ScriptReport runFromResources(String fileName) throws SQLException {
+        try (BufferedReader reader = FileReader.openReaderFromResources(fileName)) {
+            return run(reader);
+        } catch (IOException e) {
+            throw new FileReaderException(String.format("Cannot read script %s", fileName), e);
+        }
+    }
+
+    public ScriptReport run(Reader reader) throws SQLException {
+        return run(reader, result -> {
+        });
+    }
+
+    /**
+     * Executes a script concurrently
+     *
+     * @param reader   script source
+     * @param listener receives the result of every executed statement, it's always called from the calling thread
+     * @return execution report
+     * @throws SqlScriptException if a statement fails
+     */
+    public ScriptReport run(Reader reader, Consumer<StatementResult> listener) throws SQLException {
+        DdlDependencyGraph graph = DdlDependencyGraph.build(readStatements(reader));
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "parallel-ddl-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Execution execution = new Execution(executor, listener);
+            execution.runPhase(graph.getTableNodes());
+            execution.runPhase(graph.getIndexNodes());
+            return execution.createReport();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<ScriptStatement> readStatements(Reader reader) {
+        SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(reader);
+        List<ScriptStatement> statements = new ArrayList<>();
+        try {
+            ScriptStatement statement;
+            while ((statement = tokenizer.nextStatement()) != null) {
+                statements.add(statement);
+            }
+            return statements;
+        } catch (IOException e) {
+            throw new FileReaderException("Cannot read SQL script", e);
+        }
+    }
+
+    private StatementResult execute(ScriptStatement scriptStatement) {
+        long startNanos = System.nanoTime();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(scriptStatement.getSql());
+            return new StatementResult(scriptStatement, Duration.ofNanos(System.nanoTime() - startNanos), null);
+        } catch (SQLException e) {
+            return new StatementResult(scriptStatement, Duration.ofNanos(System.nanoTime() - startNanos), e);
+        }
+    }
+
+    /**
+     * Holds the state of a single script execution. It's used only by the calling thread, the workers just execute
+     * statements.
+     */
+    private class Execution {
+        private final CompletionService<Map.Entry<Node, StatementResult>> completionService;
+        private final Consumer<StatementResult> listener;
+        private final List<StatementResult> failures = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+        private int executedStatements;
+
+        Execution(ExecutorService executor, Consumer<StatementResult> listener) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+            this.listener = listener;
+        }
+
+        void runPhase(List<Node> nodes) throws SQLException {
+            Map<Node, Integer> remainingDependencies = new HashMap<>();
+            int running = 0;
+            for (Node node : nodes) {
+                remainingDependencies.put(node, node.getDependencies().size());
+                if (node.getDependencies().isEmpty()) {
+                    submit(node);
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Map.Entry<Node, StatementResult> completed = takeCompleted();
+                running--;
+                complete(completed.getValue());
+                if (!failures.isEmpty()) {
+                    continue;
+                }
+                for (Node dependent : completed.getKey().getDependents()) {
+                    if (remainingDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                        submit(dependent);
+                        running++;
+                    }
+                }
+            }
+            if (!failures.isEmpty()) {
+                StatementResult failure = failures.get(0);
+                throw new SqlScriptException(String.format("Statement #%d at line %d failed: %s",
+                        failure.getStatement().getIndex(), failure.getStatement().getLineNumber(),
+                        failure.getError().getMessage()), createReport(), failure.getError());
+            }
+        }
+
+        private void submit(Node node) {
+            completionService.submit(() -> Map.entry(node, execute(node.getStatement())));
+        }
+
+        private Map.Entry<Node, StatementResult> takeCompleted() throws SQLException {
+            try {
+                return completionService.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for DDL statements", e);
+            } catch (ExecutionException e) {
+                throw new SQLException("DDL statement execution failed", e.getCause());
+            }
+        }
+
+        private void complete(StatementResult result) {
+            executedStatements++;
+            if (result.isFailed()) {
+                failures.add(result);
+            }
+            listener.accept(result);
+        }
+
+        ScriptReport createReport() {
+            Duration totalDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+            return new ScriptReport(executedStatements, 0, totalDuration, List.copyOf(failures));
+        }
+    }
+}
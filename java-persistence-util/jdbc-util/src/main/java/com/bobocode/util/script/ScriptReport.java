@@ -0,0 +1,23 @@
+package com.bobocode.util.script;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link ScriptReport} summarizes a script execution. It keeps only failed statements, so it stays small for large
+ * scripts. Use a listener of {@link SqlScriptRunner#run(java.io.Reader, java.util.function.Consumer)} to get the
+ * timing of every statement.
+ */
+@Value
+public class ScriptReport {
+    int executedStatements;
+    int batches;
+    Duration totalDuration;
+    List<StatementResult> failures;
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,22 @@
+package com.bobocode.util.script;
+
+import lombok.Value;
+
+/**
+ * {@link ScriptStatement} is a single SQL statement read from a script by {@link SqlScriptTokenizer}.
+ */
+@Value
+public class ScriptStatement {
+    /**
+     * Position of the statement in the script, starting from 1
+     */
+    int index;
+    /**
+     * Line of the script where the statement starts, starting from 1
+     */
+    int lineNumber;
+    /**
+     * Statement text without comments and the trailing semicolon
+     */
+    String sql;
+}
@@ -0,0 +1,19 @@
+package com.bobocode.util.script;
+
+import lombok.Getter;
+
+import java.sql.SQLException;
+
+/**
+ * {@link SqlScriptException} is thrown by {@link SqlScriptRunner} when a statement of a script fails. It carries
+ * the report of statements executed so far.
+ */
+@Getter
+public class SqlScriptException extends SQLException {
+    private final transient ScriptReport report;
+
+    public SqlScriptException(String message, ScriptReport report, SQLException cause) {
+        super(message, cause.getSQLState(), cause.getErrorCode(), cause);
+        this.report = report;
+    }
+}
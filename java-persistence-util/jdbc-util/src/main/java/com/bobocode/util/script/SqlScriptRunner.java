@@ -0,0 +1,229 @@
+package com.bobocode.util.script;
+
+import com.bobocode.util.FileReader;
+import com.bobocode.util.FileReaderException;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link SqlScriptRunner} executes an SQL script statement by statement while reading it with
+ * {@link SqlScriptTokenizer}, so the script is never loaded into memory as a whole. Statements are sent to the
+ * database in JDBC batches of {@code batchSize}; queries (e.g. {@code SELECT setval(...)}) cannot be batched and
+ * are executed one by one.
+ * <p>
+ * By default the first failed statement stops the script with {@link SqlScriptException}. When
+ * {@code continueOnError} is enabled, every statement is executed separately so that a failure cannot affect its
+ * neighbours in a batch, and all failures are collected in the {@link ScriptReport}.
+ */
+public class SqlScriptRunner {
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    private static final Set<String> QUERY_KEYWORDS = Set.of("SELECT", "WITH", "VALUES", "SHOW", "EXPLAIN", "CALL");
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final boolean continueOnError;
+
+    public SqlScriptRunner(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE, false);
+    }
+
+    /**
+     * @param dataSource      a data source to run scripts on
+     * @param batchSize       max number of statements sent in one batch
+     * @param continueOnError whether the script should go on after a failed statement
+     */
+    public SqlScriptRunner(DataSource dataSource, int batchSize, boolean continueOnError) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be positive");
+        }
+        this.dataSource = dataSource;
+        this.batchSize = continueOnError ? 1 : batchSize;
+        this.continueOnError = continueOnError;
+    }
+
+    /**
+     * Executes a script file from resources
+     *
+     * @param fileName a name of the script file
+     * @return execution report
+     * @throws SqlScriptException if a statement fails and {@code continueOnError} is disabled
+     */
+    public ScriptReport runFromResources(String fileName) throws SQLException {
+        try (BufferedReader reader = FileReader.openReaderFromResources(fileName)) {
+            return run(reader);
+        } catch (IOException e) {
+            throw new FileReaderException(String.format("Cannot read script %s", fileName), e);
+        }
+    }
+
+    public ScriptReport run(Reader reader) throws SQLException {
+        return run(reader, result -> {
+        });
+    }
+
+    /**
+     * Executes a script on a new connection of the data source
+     *
+     * @param reader   script source
+     * @param listener receives the result of every executed statement
+     * @return execution report
+     * @throws SqlScriptException if a statement fails and {@code continueOnError} is disabled
+     */
+    public ScriptReport run(Reader reader, Consumer<StatementResult> listener) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return run(connection, reader, listener);
+        }
+    }
+
+    /**
+     * Executes a script on provided connection. The connection is not closed.
+     */
+    public ScriptReport run(Connection connection, Reader reader, Consumer<StatementResult> listener)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            Execution execution = new Execution(statement, listener);
+            SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(reader);
+            ScriptStatement scriptStatement;
+            while ((scriptStatement = readNext(tokenizer)) != null) {
+                execution.add(scriptStatement);
+            }
+            execution.flush();
+            return execution.createReport();
+        }
+    }
+
+    private static ScriptStatement readNext(SqlScriptTokenizer tokenizer) {
+        try {
+            return tokenizer.nextStatement();
+        } catch (IOException e) {
+            throw new FileReaderException("Cannot read SQL script", e);
+        }
+    }
+
+    private static boolean isQuery(String sql) {
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return QUERY_KEYWORDS.contains(sql.substring(0, end).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Holds the state of a single script execution
+     */
+    private class Execution {
+        private final Statement statement;
+        private final Consumer<StatementResult> listener;
+        private final List<ScriptStatement> pendingBatch = new ArrayList<>();
+        private final List<StatementResult> failures = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+        private int executedStatements;
+        private int batches;
+
+        Execution(Statement statement, Consumer<StatementResult> listener) {
+            this.statement = statement;
+            this.listener = listener;
+        }
+
+        void add(ScriptStatement scriptStatement) throws SQLException {
+            if (batchSize == 1 || isQuery(scriptStatement.getSql())) {
+                flush();
+                executeSingle(scriptStatement);
+                return;
+            }
+            statement.addBatch(scriptStatement.getSql());
+            pendingBatch.add(scriptStatement);
+            if (pendingBatch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void executeSingle(ScriptStatement scriptStatement) throws SQLException {
+            long statementStartNanos = System.nanoTime();
+            try {
+                statement.execute(scriptStatement.getSql());
+                complete(scriptStatement, System.nanoTime() - statementStartNanos, null);
+            } catch (SQLException e) {
+                complete(scriptStatement, System.nanoTime() - statementStartNanos, e);
+                failIfRequired(e);
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pendingBatch.isEmpty()) {
+                return;
+            }
+            batches++;
+            long batchStartNanos = System.nanoTime();
+            try {
+                statement.executeBatch();
+                long shareNanos = (System.nanoTime() - batchStartNanos) / pendingBatch.size();
+                pendingBatch.forEach(scriptStatement -> complete(scriptStatement, shareNanos, null));
+            } catch (BatchUpdateException e) {
+                completeFailedBatch(e, System.nanoTime() - batchStartNanos);
+            } finally {
+                pendingBatch.clear();
+                statement.clearBatch();
+            }
+        }
+
+        /**
+         * Drivers either stop at the first failed statement and return fewer update counts (e.g. PostgreSQL), or
+         * execute the whole batch and mark failed statements with {@link Statement#EXECUTE_FAILED} (e.g. H2). Both
+         * ways tell exactly which statements failed.
+         */
+        private void completeFailedBatch(BatchUpdateException e, long batchNanos) throws SQLException {
+            int[] updateCounts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+            long shareNanos = batchNanos / pendingBatch.size();
+            SQLException statementError = e.getNextException() != null ? e.getNextException() : e;
+            SQLException firstError = null;
+            for (int i = 0; i < pendingBatch.size(); i++) {
+                boolean failed = i >= updateCounts.length || updateCounts[i] == Statement.EXECUTE_FAILED;
+                complete(pendingBatch.get(i), shareNanos, failed ? statementError : null);
+                if (failed) {
+                    firstError = statementError;
+                    if (i >= updateCounts.length) {
+                        break;
+                    }
+                }
+            }
+            failIfRequired(firstError != null ? firstError : e);
+        }
+
+        private void complete(ScriptStatement scriptStatement, long nanos, SQLException error) {
+            StatementResult result = new StatementResult(scriptStatement, Duration.ofNanos(nanos), error);
+            executedStatements++;
+            if (result.isFailed()) {
+                failures.add(result);
+            }
+            listener.accept(result);
+        }
+
+        private void failIfRequired(SQLException e) throws SqlScriptException {
+            if (!continueOnError) {
+                StatementResult failure = failures.get(0);
+                throw new SqlScriptException(String.format("Statement #%d at line %d failed: %s",
+                        failure.getStatement().getIndex(), failure.getStatement().getLineNumber(), e.getMessage()),
+                        createReport(), e);
+            }
+        }
+
+        ScriptReport createReport() {
+            Duration totalDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+            return new ScriptReport(executedStatements, batches, totalDuration, List.copyOf(failures));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.bobocode.util.script;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+
+/**
+ * {@link SqlScriptTokenizer} splits an SQL script into statements while reading it, so only the current statement
+ * is kept in memory. Statements are separated by semicolons. Semicolons inside {@code -- line} and
+ * {@code /* block *}{@code /} comments (nested ones too), {@code 'string'} literals, {@code "quoted"} identifiers and
+ * PostgreSQL {@code $tag$dollar-quoted$tag$} bodies are not treated as separators. Comments are removed from the
+ * returned statements.
+ */
+public class SqlScriptTokenizer {
+    private static final int EOF = -1;
+    private static final int MAX_DOLLAR_TAG_LENGTH = 64;
+
+    private final PushbackReader reader;
+    private int lineNumber = 1;
+    private int statementIndex;
+
+    public SqlScriptTokenizer(Reader reader) {
+        this.reader = new PushbackReader(reader, MAX_DOLLAR_TAG_LENGTH + 2);
+    }
+
+    /**
+     * Reads the next statement from the script
+     *
+     * @return next non-empty statement, or {@code null} when the script is over
+     * @throws IOException if the script cannot be read
+     */
+    public ScriptStatement nextStatement() throws IOException {
+        StringBuilder sql = new StringBuilder();
+        int startLine = -1;
+        int ch;
+        while ((ch = read()) != EOF) {
+            if (ch == ';') {
+                if (!isBlank(sql)) {
+                    return createStatement(sql, startLine);
+                }
+                sql.setLength(0);
+                startLine = -1;
+                continue;
+            }
+            if (ch == '-' && peek() == '-') {
+                skipLineComment();
+                sql.append('\n');
+                continue;
+            }
+            if (ch == '/' && peek() == '*') {
+                read();
+                skipBlockComment();
+                sql.append(' ');
+                continue;
+            }
+            if (startLine < 0 && !Character.isWhitespace(ch)) {
+                startLine = lineNumber;
+            }
+            sql.append((char) ch);
+            if (ch == '\'' || ch == '"') {
+                copyQuoted(sql, (char) ch);
+            } else if (ch == '$' && !isPrecededByIdentifier(sql)) {
+                copyDollarQuotedIfPresent(sql);
+            }
+        }
+        return isBlank(sql) ? null : createStatement(sql, startLine);
+    }
+
+    private ScriptStatement createStatement(StringBuilder sql, int startLine) {
+        return new ScriptStatement(++statementIndex, startLine, sql.toString().trim());
+    }
+
+    /**
+     * A dollar sign inside an identifier (e.g. {@code a$b}) cannot start a dollar-quote
+     */
+    private static boolean isPrecededByIdentifier(StringBuilder sql) {
+        if (sql.length() < 2) {
+            return false;
+        }
+        char previous = sql.charAt(sql.length() - 2);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+
+    private static boolean isBlank(CharSequence sql) {
+        for (int i = 0; i < sql.length(); i++) {
+            if (!Character.isWhitespace(sql.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipLineComment() throws IOException {
+        int ch;
+        while ((ch = read()) != EOF && ch != '\n') {
+            // skip comment text
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int depth = 1;
+        int ch;
+        while (depth > 0 && (ch = read()) != EOF) {
+            if (ch == '/' && peek() == '*') {
+                read();
+                depth++;
+            } else if (ch == '*' && peek() == '/') {
+                read();
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Copies a quoted literal or identifier. A doubled quote char is an escaped quote, so reading simply continues.
+     */
+    private void copyQuoted(StringBuilder sql, char quote) throws IOException {
+        int ch;
+        while ((ch = read()) != EOF) {
+            sql.append((char) ch);
+            if (ch == quote) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if {@code $} starts a dollar-quote tag ({@code $$} or {@code $tag$}), and copies the whole quoted body if
+     * so. Otherwise (e.g. {@code $1} parameter) the characters are left for normal processing.
+     */
+    private void copyDollarQuotedIfPresent(StringBuilder sql) throws IOException {
+        StringBuilder tag = new StringBuilder("$");
+        while (tag.length() <= MAX_DOLLAR_TAG_LENGTH) {
+            int ch = read();
+            if (ch == EOF) {
+                sql.append(tag, 1, tag.length());
+                return;
+            }
+            tag.append((char) ch);
+            if (ch == '$') {
+                sql.append(tag, 1, tag.length());
+                copyDollarQuotedBody(sql, tag.toString());
+                return;
+            }
+            boolean validTagChar = Character.isLetter(ch) || ch == '_' || (tag.length() > 2 && Character.isDigit(ch));
+            if (!validTagChar) {
+                break;
+            }
+        }
+        unreadTail(tag);
+    }
+
+    private void unreadTail(StringBuilder tag) throws IOException {
+        for (int i = tag.length() - 1; i >= 1; i--) {
+            unread(tag.charAt(i));
+        }
+    }
+
+    private void copyDollarQuotedBody(StringBuilder sql, String tag) throws IOException {
+        int bodyStart = sql.length();
+        int ch;
+        while ((ch = read()) != EOF) {
+            sql.append((char) ch);
+            if (ch == '$' && sql.length() - tag.length() >= bodyStart && endsWith(sql, tag)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean endsWith(StringBuilder sql, String suffix) {
+        int offset = sql.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sql.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int read() throws IOException {
+        int ch = reader.read();
+        if (ch == '\n') {
+            lineNumber++;
+        }
+        return ch;
+    }
+
+    private void unread(int ch) throws IOException {
+        if (ch == '\n') {
+            lineNumber--;
+        }
+        reader.unread(ch);
+    }
+
+    private int peek() throws IOException {
+        int ch = reader.read();
+        if (ch != EOF) {
+            reader.unread(ch);
+        }
+        return ch;
+    }
+}
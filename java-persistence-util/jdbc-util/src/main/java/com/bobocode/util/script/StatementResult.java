@@ -0,0 +1,24 @@
+package com.bobocode.util.script;
+
+import lombok.Value;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * {@link StatementResult} describes the execution of a single {@link ScriptStatement}. When statements are sent in a
+ * batch, the driver reports only the time of the whole batch, so each statement gets an equal share of it.
+ */
+@Value
+public class StatementResult {
+    ScriptStatement statement;
+    Duration duration;
+    /**
+     * The cause of failure, or {@code null} if the statement succeeded
+     */
+    SQLException error;
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
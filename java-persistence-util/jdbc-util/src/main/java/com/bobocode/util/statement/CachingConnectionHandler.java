@@ -0,0 +1,261 @@
+package com.bobocode.util.statement;
+
+import com.bobocode.util.JdbcProxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link CachingConnectionHandler} is a {@link Connection} proxy handler that keeps an LRU map of prepared statements.
+ * {@code prepareStatement} returns a cached statement when the same key was prepared before and that statement is
+ * not in use, and closing such statement returns it to the cache. A connection is used by one thread at a time, so
+ * the map is not synchronized.
+ * <p>
+ * A statement leaves the cache and is closed when it cannot be reset for the next borrower, when it was closed
+ * physically (e.g. by the driver) or when a borrower made it non-cacheable with {@code closeOnCompletion()} or
+ * {@code setPoolable(false)}.
+ */
+class CachingConnectionHandler implements InvocationHandler {
+    private final Connection connection;
+    private final StatementCachingDataSource dataSource;
+    private final Map<StatementKey, CachedStatement> cache;
+    private Connection proxy;
+
+    CachingConnectionHandler(Connection connection, StatementCachingDataSource dataSource, int cacheSize) {
+        this.connection = connection;
+        this.dataSource = dataSource;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() > cacheSize) {
+                    eldest.getValue().evict();
+                    dataSource.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection createProxy() {
+        proxy = JdbcProxies.createProxy(Connection.class, this);
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "prepareStatement":
+                return prepareStatement(method, args);
+            case "close":
+                close();
+                return null;
+            case "unwrap":
+                return JdbcProxies.unwrap(proxy, connection, (Class<?>) args[0]);
+            case "isWrapperFor":
+                return JdbcProxies.isWrapperFor(proxy, connection, (Class<?>) args[0]);
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return JdbcProxies.invoke(connection, method, args);
+        }
+    }
+
+    private PreparedStatement prepareStatement(Method method, Object[] args) throws Throwable {
+        StatementKey key = createKey(args);
+        CachedStatement cachedStatement = cache.get(key);
+        if (cachedStatement != null && !cachedStatement.inUse) {
+            if (!cachedStatement.isPhysicallyClosed()) {
+                dataSource.recordHit();
+                return cachedStatement.borrow();
+            }
+            cachedStatement.discard();
+            cachedStatement = null;
+        }
+        dataSource.recordMiss();
+        PreparedStatement statement = (PreparedStatement) JdbcProxies.invoke(connection, method, args);
+        if (cachedStatement != null) {
+            // the same statement is already open, so the new one is not cached
+            return statement;
+        }
+        cachedStatement = new CachedStatement(key, statement);
+        cache.put(key, cachedStatement);
+        return cachedStatement.borrow();
+    }
+
+    private static StatementKey createKey(Object[] args) {
+        String sql = (String) args[0];
+        if (args.length == 1) {
+            return StatementKey.of(sql);
+        } else if (args.length == 2 && args[1] instanceof Integer) {
+            return StatementKey.withGeneratedKeys(sql, (Integer) args[1]);
+        } else if (args.length == 2 && args[1] instanceof int[]) {
+            return StatementKey.withGeneratedKeys(sql, (int[]) args[1]);
+        } else if (args.length == 2) {
+            return StatementKey.withGeneratedKeys(sql, (String[]) args[1]);
+        } else if (args.length == 3) {
+            return StatementKey.of(sql, (Integer) args[1], (Integer) args[2], -1);
+        }
+        return StatementKey.of(sql, (Integer) args[1], (Integer) args[2], (Integer) args[3]);
+    }
+
+    private void close() throws SQLException {
+        List<CachedStatement> cachedStatements = new ArrayList<>(cache.values());
+        cache.clear();
+        cachedStatements.forEach(CachedStatement::evict);
+        connection.close();
+    }
+
+    /**
+     * A physical statement stored in the cache. It's handed out as a proxy that returns it to the cache on close.
+     * Release resets the state that a borrower can leave behind: parameters, pending batch, and the fetch size, max
+     * rows and query timeout that the statement had when it was prepared.
+     */
+    private class CachedStatement {
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private final int initialFetchSize;
+        private final int initialMaxRows;
+        private final int initialQueryTimeout;
+        private boolean inUse;
+        private boolean evicted;
+        private boolean cacheable = true;
+
+        CachedStatement(StatementKey key, PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.initialFetchSize = statement.getFetchSize();
+            this.initialMaxRows = statement.getMaxRows();
+            this.initialQueryTimeout = statement.getQueryTimeout();
+        }
+
+        PreparedStatement borrow() {
+            inUse = true;
+            return JdbcProxies.createProxy(PreparedStatement.class, new StatementHandle());
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        /**
+         * Removes the statement from the cache and closes it
+         */
+        void discard() {
+            cache.remove(key, this);
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        boolean isPhysicallyClosed() {
+            try {
+                return statement.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        /**
+         * A statement that cannot be reset is discarded, so that the next borrower never gets a half-reset one
+         */
+        private void release() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            if (!cacheable || isPhysicallyClosed()) {
+                discard();
+                return;
+            }
+            try {
+                reset();
+            } catch (SQLException | RuntimeException e) {
+                discard();
+                throw e;
+            }
+        }
+
+        private void reset() throws SQLException {
+            ResultSet resultSet = statement.getResultSet();
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            // max rows first, as some drivers reject a fetch size above max rows
+            if (statement.getMaxRows() != initialMaxRows) {
+                statement.setMaxRows(initialMaxRows);
+            }
+            if (statement.getFetchSize() != initialFetchSize) {
+                statement.setFetchSize(initialFetchSize);
+            }
+            if (statement.getQueryTimeout() != initialQueryTimeout) {
+                statement.setQueryTimeout(initialQueryTimeout);
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // the statement is not used anymore
+            }
+        }
+
+        private class StatementHandle implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object statementProxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "closeOnCompletion":
+                        cacheable = cacheable && closed;
+                        break;
+                    case "setPoolable":
+                        cacheable = cacheable && (closed || (Boolean) args[0]);
+                        break;
+                    case "getConnection":
+                        return proxy;
+                    case "unwrap":
+                        return JdbcProxies.unwrap(statementProxy, statement, (Class<?>) args[0]);
+                    case "isWrapperFor":
+                        return JdbcProxies.isWrapperFor(statementProxy, statement, (Class<?>) args[0]);
+                    case "equals":
+                        return statementProxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(statementProxy);
+                }
+                // a closed handle fails here, and can't make the statement of the next borrower non-cacheable above
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+                return JdbcProxies.invoke(statement, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bobocode.util.statement;
+
+import lombok.Value;
+
+/**
+ * {@link StatementCacheStats} is a snapshot of prepared statement cache counters summed over all connections of
+ * a {@link StatementCachingDataSource}.
+ */
+@Value
+public class StatementCacheStats {
+    long hits;
+    long misses;
+    long evictions;
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
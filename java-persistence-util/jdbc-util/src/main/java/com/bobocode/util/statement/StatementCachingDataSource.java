@@ -0,0 +1,106 @@
+package com.bobocode.util.statement;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * {@link StatementCachingDataSource} is a {@link DataSource} decorator that gives every connection its own LRU cache
+ * of prepared statements. A statement is cached by its SQL text and result set / generated keys options, and closing
+ * it returns it to the cache with cleared parameters, so the driver doesn't parse the same SQL again.
+ * <p>
+ * A cache lives as long as the physical connection, so this decorator should be placed <b>under</b> a connection
+ * pool: {@code new PooledDataSource(new StatementCachingDataSource(target, 50), config)}. Use
+ * {@link com.bobocode.util.pool.PoolConfig#getStatementCacheSize()} to let {@link com.bobocode.util.JdbcUtil} do it.
+ */
+public class StatementCachingDataSource implements DataSource {
+    private final DataSource targetDataSource;
+    private final int cacheSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param targetDataSource a data source that opens physical connections
+     * @param cacheSize        max number of prepared statements cached per connection
+     */
+    public StatementCachingDataSource(DataSource targetDataSource, int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Statement cache size should be positive");
+        }
+        this.targetDataSource = targetDataSource;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new CachingConnectionHandler(targetDataSource.getConnection(), this, cacheSize).createProxy();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = targetDataSource.getConnection(username, password);
+        return new CachingConnectionHandler(connection, this, cacheSize).createProxy();
+    }
+
+    /**
+     * @return hit, miss and eviction counters of all connections opened by this data source
+     */
+    public StatementCacheStats getStats() {
+        return new StatementCacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return targetDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+}
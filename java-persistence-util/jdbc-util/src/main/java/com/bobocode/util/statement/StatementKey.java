@@ -0,0 +1,48 @@
+package com.bobocode.util.statement;
+
+import lombok.Value;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * {@link StatementKey} identifies a prepared statement in the cache. Two statements can be shared only if they have
+ * the same SQL text and were prepared with the same result set and generated keys options.
+ */
+@Value
+class StatementKey {
+    private static final int DEFAULT_HOLDABILITY = -1;
+
+    String sql;
+    int resultSetType;
+    int resultSetConcurrency;
+    int resultSetHoldability;
+    int autoGeneratedKeys;
+    int[] columnIndexes;
+    String[] columnNames;
+
+    static StatementKey of(String sql) {
+        return new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY,
+                Statement.NO_GENERATED_KEYS, null, null);
+    }
+
+    static StatementKey of(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return new StatementKey(sql, resultSetType, resultSetConcurrency, resultSetHoldability,
+                Statement.NO_GENERATED_KEYS, null, null);
+    }
+
+    static StatementKey withGeneratedKeys(String sql, int autoGeneratedKeys) {
+        return new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY,
+                autoGeneratedKeys, null, null);
+    }
+
+    static StatementKey withGeneratedKeys(String sql, int[] columnIndexes) {
+        return new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY,
+                Statement.RETURN_GENERATED_KEYS, columnIndexes.clone(), null);
+    }
+
+    static StatementKey withGeneratedKeys(String sql, String[] columnNames) {
+        return new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY,
+                Statement.RETURN_GENERATED_KEYS, null, columnNames.clone());
+    }
+}
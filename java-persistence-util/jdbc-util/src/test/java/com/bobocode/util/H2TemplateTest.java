@@ -0,0 +1,109 @@
+package com.bobocode.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class H2TemplateTest {
+    private static final String TEMPLATE_NAME = "products_template";
+
+    private static H2Template template;
+
+    @BeforeAll
+    static void createTemplate() throws SQLException {
+        template = JdbcUtil.createH2Template(TEMPLATE_NAME, dataSource -> {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE products(id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+                statement.execute("CREATE INDEX products_name_idx ON products(name)");
+                statement.execute("INSERT INTO products SELECT x, 'product ' || x FROM system_range(1, 1000)");
+            }
+        });
+    }
+
+    @AfterAll
+    static void dropTemplate() {
+        template.drop();
+    }
+
+    @Test
+    @DisplayName("A clone has the schema and the data of the template")
+    void cloneHasTemplateData() throws SQLException {
+        DataSource clone = JdbcUtil.cloneFromTemplate(TEMPLATE_NAME);
+
+        assertThat(countProducts(clone)).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("Clones are independent of each other")
+    void clonesAreIndependent() throws SQLException {
+        DataSource firstClone = JdbcUtil.cloneFromTemplate(TEMPLATE_NAME);
+        DataSource secondClone = JdbcUtil.cloneFromTemplate(TEMPLATE_NAME);
+
+        try (Connection connection = firstClone.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM products WHERE id > 10");
+        }
+
+        assertThat(countProducts(firstClone)).isEqualTo(10);
+        assertThat(countProducts(secondClone)).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("Cloning an unknown template fails")
+    void cloningUnknownTemplateFails() {
+        assertThatThrownBy(() -> JdbcUtil.cloneFromTemplate("unknown_template"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("A re-created template gives clones new names")
+    void recreatedTemplateClonesDoNotCollide() throws SQLException {
+        String name = "recreated_template";
+        H2Template.Initializer initializer = dataSource -> {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE products(id BIGINT PRIMARY KEY)");
+            }
+        };
+        JdbcUtil.createH2Template(name, initializer);
+        DataSource firstClone = JdbcUtil.cloneFromTemplate(name);
+
+        H2Template recreated = JdbcUtil.createH2Template(name, initializer);
+        try {
+            DataSource secondClone = JdbcUtil.cloneFromTemplate(name);
+
+            assertThat(countProducts(firstClone)).isZero();
+            assertThat(countProducts(secondClone)).isZero();
+        } finally {
+            recreated.drop();
+        }
+    }
+
+    @Test
+    @DisplayName("A dropped clone is closed")
+    void droppedCloneIsClosed() throws SQLException {
+        DataSource clone = template.createClone();
+
+        H2Template.dropClone(clone);
+
+        assertThatThrownBy(() -> countProducts(clone)).isInstanceOf(SQLException.class);
+    }
+
+    private static int countProducts(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM products");
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.bobocode.util.id;
+
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class BlockIdAllocatorTest {
+    private DataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:id_allocator_test;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @DisplayName("Ids are taken from reserved blocks")
+    void idsAreTakenFromBlocks() {
+        BlockIdAllocator allocator = new BlockIdAllocator(dataSource, "products", 10);
+
+        assertThat(allocator.nextId()).isEqualTo(1);
+        assertThat(allocator.allocate(12)).containsExactly(2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13);
+
+        IdAllocationStats stats = allocator.getStats();
+        assertThat(stats.getAllocatedIds()).isEqualTo(13);
+        assertThat(stats.getReservedBlocks()).isEqualTo(2);
+        assertThat(stats.getReservationLatency().getCount()).isEqualTo(2);
+        assertThat(stats.getAllocationRate()).isPositive();
+    }
+
+    @Test
+    @DisplayName("The counter table is created with the first reservation only")
+    void counterTableIsCreatedOnce() throws SQLException {
+        AtomicInteger createdStatements = new AtomicInteger();
+        DataSource countingDataSource = mock(DataSource.class);
+        when(countingDataSource.getConnection()).thenAnswer(invocation -> {
+            Connection connection = spy(dataSource.getConnection());
+            doAnswer(statementInvocation -> {
+                createdStatements.incrementAndGet();
+                return statementInvocation.callRealMethod();
+            }).when(connection).createStatement();
+            return connection;
+        });
+        BlockIdAllocator allocator = new BlockIdAllocator(countingDataSource, "products", 10);
+
+        allocator.allocate(30);
+
+        assertThat(allocator.getStats().getReservedBlocks()).isEqualTo(3);
+        assertThat(createdStatements).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Allocators of different nodes never hand out the same id")
+    void allocatorsDontOverlap() {
+        BlockIdAllocator first = new BlockIdAllocator(dataSource, "products", 5);
+        BlockIdAllocator second = new BlockIdAllocator(dataSource, "products", 5);
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++) {
+            ids.add(first.nextId());
+            ids.add(second.nextId());
+        }
+
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Concurrent threads get unique ids")
+    void concurrentThreadsGetUniqueIds() throws Exception {
+        BlockIdAllocator allocator = new BlockIdAllocator(dataSource, "products", 50);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<Integer> task = () -> {
+                for (int i = 0; i < 500; i++) {
+                    ids.add(allocator.nextId());
+                    for (long id : allocator.allocate(3)) {
+                        ids.add(id);
+                    }
+                }
+                return 2000;
+            };
+            List<Future<Integer>> results = executor.invokeAll(List.of(task, task, task, task));
+            for (Future<Integer> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ids).hasSize(8000);
+        assertThat(allocator.getStats().getAllocatedIds()).isEqualTo(8000);
+    }
+}
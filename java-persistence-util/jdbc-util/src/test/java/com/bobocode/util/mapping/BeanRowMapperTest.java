@@ -0,0 +1,100 @@
+package com.bobocode.util.mapping;
+
+import com.bobocode.util.JdbcUtil;
+import lombok.Data;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BeanRowMapperTest {
+    private static final BeanRowMapper<Item> ITEM_MAPPER = BeanRowMapper.of(Item.class);
+
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:row_mapper_test;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items(id BIGINT PRIMARY KEY, name VARCHAR(255), quantity INT, " +
+                    "price DECIMAL(19, 4), expiration_date DATE, creation_time TIMESTAMP, note VARCHAR(255))");
+            statement.execute("INSERT INTO items VALUES " +
+                    "(1, 'apple', 3, 1.5, DATE '2030-01-01', TIMESTAMP '2020-01-01 10:00:00', 'ignored'), " +
+                    "(2, NULL, NULL, NULL, NULL, NULL, NULL)");
+        }
+    }
+
+    @Test
+    @DisplayName("Columns are mapped to bean properties ignoring case and underscores")
+    void mapsColumnsToProperties() throws SQLException {
+        List<Item> items = query("SELECT * FROM items ORDER BY id");
+
+        Item apple = items.get(0);
+        assertThat(apple.getId()).isEqualTo(1L);
+        assertThat(apple.getName()).isEqualTo("apple");
+        assertThat(apple.getQuantity()).isEqualTo(3);
+        assertThat(apple.getPrice()).isEqualByComparingTo("1.5");
+        assertThat(apple.getExpirationDate()).isEqualTo(LocalDate.of(2030, 1, 1));
+        assertThat(apple.getCreationTime()).isEqualTo(LocalDateTime.of(2020, 1, 1, 10, 0));
+    }
+
+    @Test
+    @DisplayName("NULL values keep primitive defaults and set wrappers to null")
+    void mapsNullValues() throws SQLException {
+        Item empty = query("SELECT * FROM items WHERE id = 2").get(0);
+
+        assertThat(empty.getName()).isNull();
+        assertThat(empty.getQuantity()).isZero();
+        assertThat(empty.getExpirationDate()).isNull();
+    }
+
+    @Test
+    @DisplayName("Row mappers are resolved once per result set shape")
+    void rowMappersAreCachedPerShape() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet first = statement.executeQuery("SELECT id, name FROM items");
+            RowMapper<Item> firstMapper = ITEM_MAPPER.forMetaData(first.getMetaData());
+            ResultSet second = statement.executeQuery("SELECT id, name FROM items WHERE id = 1");
+            RowMapper<Item> secondMapper = ITEM_MAPPER.forMetaData(second.getMetaData());
+            ResultSet other = statement.executeQuery("SELECT name, id FROM items");
+            RowMapper<Item> otherMapper = ITEM_MAPPER.forMetaData(other.getMetaData());
+
+            assertThat(secondMapper).isSameAs(firstMapper);
+            assertThat(otherMapper).isNotSameAs(firstMapper);
+        }
+    }
+
+    @Test
+    @DisplayName("A class without a public no-arg constructor is rejected")
+    void rejectsClassWithoutNoArgConstructor() {
+        assertThatIllegalArgumentException().isThrownBy(() -> BeanRowMapper.of(Integer.class));
+    }
+
+    private static List<Item> query(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            return ITEM_MAPPER.mapAll(statement.executeQuery(sql));
+        }
+    }
+
+    @Data
+    public static class Item {
+        private Long id;
+        private String name;
+        private int quantity;
+        private BigDecimal price;
+        private LocalDate expirationDate;
+        private LocalDateTime creationTime;
+    }
+}
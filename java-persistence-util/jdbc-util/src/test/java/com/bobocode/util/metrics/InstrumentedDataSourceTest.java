@@ -0,0 +1,102 @@
+package com.bobocode.util.metrics;
+
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.pool.PoolConfig;
+import com.bobocode.util.pool.PooledDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.doThrow;
+
+class InstrumentedDataSourceTest {
+    private static final String URL = "jdbc:h2:mem:metrics_test;DB_CLOSE_DELAY=-1";
+
+    @Test
+    @DisplayName("Acquisitions, lifetimes and in-use connections are recorded")
+    void recordsAcquisitionsAndLifetimes() throws SQLException {
+        var dataSource = new InstrumentedDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""));
+
+        try (Connection ignored = dataSource.getConnection()) {
+            DataSourceMetrics metrics = dataSource.getMetrics();
+            assertThat(metrics.getInUseConnections()).isEqualTo(1);
+            assertThat(metrics.getOpenConnections()).isEqualTo(1);
+        }
+        DataSourceMetrics metrics = dataSource.getMetrics();
+
+        assertThat(metrics.getAcquisitionLatency().getCount()).isEqualTo(1);
+        assertThat(metrics.getAcquisitionLatency().getMax()).isPositive();
+        assertThat(metrics.getConnectionLifetime().getCount()).isEqualTo(1);
+        assertThat(metrics.getInUseConnections()).isZero();
+    }
+
+    @Test
+    @DisplayName("Failed acquisitions are counted")
+    void countsAcquisitionFailures() throws SQLException {
+        DataSource failingDataSource = Mockito.mock(DataSource.class);
+        doThrow(new SQLException("Connection refused")).when(failingDataSource).getConnection();
+        var dataSource = new InstrumentedDataSource(failingDataSource);
+
+        assertThatExceptionOfType(SQLException.class).isThrownBy(dataSource::getConnection);
+
+        assertThat(dataSource.getMetrics().getAcquisitionFailures()).isEqualTo(1);
+        assertThat(dataSource.getMetrics().getAcquisitionLatency().getCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Open and idle connections are taken from the pool")
+    void reportsPoolConnections() throws SQLException {
+        PoolConfig poolConfig = PoolConfig.builder().minIdle(0).build();
+        try (PooledDataSource pool = JdbcUtil.createPooledH2DataSource(URL, "sa", "", poolConfig)) {
+            var dataSource = new InstrumentedDataSource(pool);
+            dataSource.getConnection().close();
+
+            try (Connection ignored = dataSource.getConnection()) {
+                DataSourceMetrics metrics = dataSource.getMetrics();
+                assertThat(metrics.getOpenConnections()).isEqualTo(1);
+                assertThat(metrics.getIdleConnections()).isZero();
+                assertThat(metrics.getInUseConnections()).isEqualTo(1);
+            }
+            assertThat(dataSource.getMetrics().getIdleConnections()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Metrics are published as an MBean")
+    void registersMBean() throws Exception {
+        var dataSource = new InstrumentedDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""));
+        dataSource.getConnection().close();
+
+        ObjectName objectName = dataSource.registerMBean("products");
+        try {
+            Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "AcquisitionCount");
+            assertThat(count).isEqualTo(1L);
+        } finally {
+            dataSource.unregisterMBean(objectName);
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles are estimated by histogram buckets")
+    void estimatesPercentiles() {
+        var histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(Duration.ofMillis(1).toNanos());
+        }
+        histogram.record(Duration.ofSeconds(1).toNanos());
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getPercentile(50)).isBetween(Duration.ofMillis(1), Duration.ofMillis(2));
+        assertThat(snapshot.getPercentile(100)).isEqualTo(Duration.ofSeconds(1));
+    }
+}
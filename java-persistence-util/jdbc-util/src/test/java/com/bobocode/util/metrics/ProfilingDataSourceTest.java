@@ -0,0 +1,132 @@
+package com.bobocode.util.metrics;
+
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfilingDataSourceTest {
+    private DataSource target;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        target = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:profiling_test;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("CREATE TABLE notes(id INT PRIMARY KEY, text VARCHAR(255))");
+        }
+    }
+
+    @Test
+    @DisplayName("SQL is normalized by literals, whitespace and placeholder lists")
+    void sqlIsNormalized() {
+        assertThat(SqlNormalizer.normalize("SELECT *\n  FROM notes WHERE id IN (?, ?,  ?) AND text = 'it''s'"))
+                .isEqualTo("SELECT * FROM notes WHERE id IN (?) AND text = ?");
+        assertThat(SqlNormalizer.normalize("SELECT col1 FROM t2 LIMIT 10"))
+                .isEqualTo("SELECT col1 FROM t2 LIMIT ?");
+    }
+
+    @Test
+    @DisplayName("Executions, rows and batches are recorded per normalized SQL")
+    void recordsStatementMetrics() throws SQLException {
+        ProfilingDataSource dataSource = new ProfilingDataSource(target, Duration.ofHours(1));
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO notes VALUES (?, ?)")) {
+                for (int id = 1; id <= 3; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "note " + id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            countRows(connection, "SELECT id FROM notes WHERE id IN (1, 2)");
+            countRows(connection, "SELECT id FROM notes WHERE id IN (1, 2, 3)");
+        }
+        List<StatementMetrics> metrics = dataSource.getStatementMetrics();
+
+        assertThat(metrics).extracting(StatementMetrics::getSql).containsExactlyInAnyOrder(
+                "INSERT INTO notes VALUES (?)", "SELECT id FROM notes WHERE id IN (?)");
+        StatementMetrics insertMetrics = find(metrics, "INSERT INTO notes VALUES (?)");
+        assertThat(insertMetrics.getBatches()).isEqualTo(1);
+        assertThat(insertMetrics.getAverageBatchSize()).isEqualTo(3);
+        assertThat(insertMetrics.getRows()).isEqualTo(3);
+        StatementMetrics selectMetrics = find(metrics, "SELECT id FROM notes WHERE id IN (?)");
+        assertThat(selectMetrics.getLatency().getCount()).isEqualTo(2);
+        assertThat(selectMetrics.getRows()).isEqualTo(5);
+        assertThat(selectMetrics.getSlowExecutions()).isZero();
+    }
+
+    @Test
+    @DisplayName("Executions above the threshold are counted as slow")
+    void countsSlowExecutions() throws SQLException {
+        List<String> messages = new ArrayList<>();
+        ProfilingDataSource dataSource = new ProfilingDataSource(target, Duration.ZERO, messages::add);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement("UPDATE notes SET text = ? WHERE id = ?")) {
+            update.setString(1, "updated");
+            update.setInt(2, 1);
+            update.executeUpdate();
+            update.executeUpdate();
+        }
+
+        StatementMetrics metrics = dataSource.getStatementMetrics().get(0);
+        assertThat(metrics.getSlowExecutions()).isEqualTo(2);
+        assertThat(metrics.getLatency().getCount()).isEqualTo(2);
+        assertThat(messages).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Slow executions are logged with their bind values")
+    void logsSlowExecutionsWithBindValues() throws SQLException {
+        List<String> messages = new ArrayList<>();
+        ProfilingDataSource dataSource = new ProfilingDataSource(target, Duration.ZERO, messages::add);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement("UPDATE notes SET text = ? WHERE id = ?")) {
+            update.setString(1, "x".repeat(150));
+            update.setInt(2, 7);
+            update.executeUpdate();
+            update.clearParameters();
+            update.setString(1, "short");
+            update.setNull(2, Types.INTEGER);
+            update.executeUpdate();
+        }
+
+        assertThat(messages).hasSize(2);
+        assertThat(messages.get(0))
+                .matches("Slow statement took \\d+ ms: UPDATE notes SET text = \\? WHERE id = \\?; parameters: .*")
+                .endsWith("; parameters: ['" + "x".repeat(99) + "..., 7]");
+        assertThat(messages.get(1)).endsWith("; parameters: ['short', null]");
+    }
+
+    private static void countRows(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(sql);
+            while (resultSet.next()) {
+                assertThat(resultSet.getInt(1)).isPositive();
+            }
+        }
+    }
+
+    private static StatementMetrics find(List<StatementMetrics> metrics, String sql) {
+        return metrics.stream()
+                .filter(statementMetrics -> statementMetrics.getSql().equals(sql))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,192 @@
+package com.bobocode.util.migration;
+
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.script.SqlScriptRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaLedgerTest {
+    private static final String SCRIPT_NAME = "db/ledger_test.sql";
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:ledger_test;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @DisplayName("A script is applied once and skipped while its checksum is the same")
+    void scriptIsAppliedOnce() throws SQLException {
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource);
+
+        assertThat(schemaLedger.applyFromResources(SCRIPT_NAME)).isTrue();
+        assertThat(schemaLedger.applyFromResources(SCRIPT_NAME)).isFalse();
+
+        assertThat(schemaLedger.findChecksum(SCRIPT_NAME)).hasSize(64);
+        assertThat(countItems()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A changed script is applied again")
+    void changedScriptIsAppliedAgain() throws SQLException {
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource);
+        schemaLedger.applyFromResources(SCRIPT_NAME);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE schema_ledger SET checksum = 'outdated'");
+            statement.execute("DROP TABLE ledger_items");
+        }
+
+        assertThat(schemaLedger.applyFromResources(SCRIPT_NAME)).isTrue();
+        assertThat(countItems()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Concurrent nodes apply a script only once")
+    void concurrentNodesApplyScriptOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<Boolean> node = () -> new SchemaLedger(dataSource).applyFromResources(SCRIPT_NAME);
+            List<Future<Boolean>> results = executor.invokeAll(IntStream.range(0, 4)
+                    .mapToObj(i -> node)
+                    .collect(Collectors.toList()));
+
+            long applied = 0;
+            for (Future<Boolean> result : results) {
+                applied += result.get() ? 1 : 0;
+            }
+            assertThat(applied).isEqualTo(1);
+            assertThat(countItems()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A lock held longer than the stale lock timeout is refreshed and not taken over")
+    void longRunningScriptKeepsLock() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        SchemaLedger.ScriptExecutor slowExecutor = (connection, script) -> {
+            executions.incrementAndGet();
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            new SqlScriptRunner(dataSource).run(connection, script, result -> {
+            });
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<Boolean> node = () -> new SchemaLedger(dataSource, SchemaLedger.DEFAULT_TABLE_NAME,
+                    Duration.ofSeconds(10), Duration.ofMillis(300)).applyFromResources(SCRIPT_NAME, slowExecutor);
+            List<Future<Boolean>> results = executor.invokeAll(List.of(node, node));
+
+            assertThat(results.get(0).get() ^ results.get(1).get()).isTrue();
+            assertThat(executions).hasValue(1);
+            assertThat(countItems()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("An error other than a taken lock is thrown right away")
+    void lockErrorIsThrown() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE schema_ledger_lock (id INT NOT NULL, locked_at TIMESTAMP NOT NULL, " +
+                    "owner VARCHAR(255) NOT NULL)");
+        }
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource);
+
+        assertThatThrownBy(() -> schemaLedger.applyFromResources(SCRIPT_NAME))
+                .isInstanceOf(SQLException.class)
+                .isNotInstanceOf(SQLTimeoutException.class);
+    }
+
+    @Test
+    @DisplayName("A script is not recorded when its lock is taken over, and the new lock row is kept")
+    void lostLockFailsScript() throws SQLException {
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource, SchemaLedger.DEFAULT_TABLE_NAME,
+                Duration.ofSeconds(10), Duration.ofMillis(150));
+        SchemaLedger.ScriptExecutor takenOverExecutor = (connection, script) -> {
+            try (Connection otherNode = dataSource.getConnection(); Statement statement = otherNode.createStatement()) {
+                statement.execute("UPDATE schema_ledger_lock SET locked_at = TIMESTAMP '2000-01-01 00:00:00'");
+            }
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertThatThrownBy(() -> schemaLedger.applyFromResources(SCRIPT_NAME, takenOverExecutor))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("was lost");
+        assertThat(schemaLedger.findChecksum(SCRIPT_NAME)).isNull();
+        assertThat(countRows("schema_ledger_lock")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("An unlock error is suppressed by the error of the script")
+    void unlockErrorDoesNotHideScriptError() {
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource);
+        SchemaLedger.ScriptExecutor failingExecutor = (connection, script) -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE schema_ledger_lock");
+            }
+            throw new SQLException("Script failed");
+        };
+
+        assertThatThrownBy(() -> schemaLedger.applyFromResources(SCRIPT_NAME, failingExecutor))
+                .hasMessage("Script failed")
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+    }
+
+    @Test
+    @DisplayName("A ledger lookup error other than a missing table is thrown before the script runs")
+    void ledgerLookupErrorIsThrown() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE schema_ledger (script_name VARCHAR(255) NOT NULL)");
+        }
+        SchemaLedger schemaLedger = new SchemaLedger(dataSource);
+
+        assertThatThrownBy(() -> schemaLedger.applyFromResources(SCRIPT_NAME)).isInstanceOf(SQLException.class);
+        assertThat(countRows("information_schema.tables WHERE table_name = 'LEDGER_ITEMS'")).isZero();
+    }
+
+    private int countItems() throws SQLException {
+        return countRows("ledger_items");
+    }
+
+    private int countRows(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + table);
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
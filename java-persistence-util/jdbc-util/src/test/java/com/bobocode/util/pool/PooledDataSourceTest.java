@@ -0,0 +1,211 @@
+package com.bobocode.util.pool;
+
+import com.bobocode.util.JdbcUtil;
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class PooledDataSourceTest {
+    private static final String URL = "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1";
+
+    private PooledDataSource pooledDataSource;
+
+    @AfterEach
+    void closePool() {
+        pooledDataSource.close();
+    }
+
+    @Test
+    @DisplayName("A closed connection is returned to the pool and reused")
+    void connectionIsReused() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder().minIdle(0).build());
+
+        JdbcConnection physicalConnection;
+        try (Connection connection = pooledDataSource.getConnection()) {
+            physicalConnection = connection.unwrap(JdbcConnection.class);
+        }
+        try (Connection connection = pooledDataSource.getConnection()) {
+            assertThat(connection.unwrap(JdbcConnection.class)).isSameAs(physicalConnection);
+        }
+        assertThat(pooledDataSource.getTotalConnections()).isEqualTo(1);
+        assertThat(pooledDataSource.getIdleConnections()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A closed handle cannot be used anymore")
+    void closedHandleCannotBeUsed() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder().minIdle(0).build());
+
+        Connection connection = pooledDataSource.getConnection();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        assertThatExceptionOfType(SQLException.class).isThrownBy(connection::createStatement);
+    }
+
+    @Test
+    @DisplayName("getConnection fails after borrow timeout when the pool is exhausted")
+    void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder()
+                .minIdle(0)
+                .maxSize(1)
+                .borrowTimeout(Duration.ofMillis(50))
+                .build());
+
+        try (Connection ignored = pooledDataSource.getConnection()) {
+            assertThatExceptionOfType(SQLTransientConnectionException.class)
+                    .isThrownBy(() -> pooledDataSource.getConnection());
+        }
+        try (Connection connection = pooledDataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("An open transaction is rolled back when a connection is returned")
+    void connectionStateIsResetOnRelease() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder().minIdle(0).maxSize(1).build());
+        try (Connection connection = pooledDataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS pool_items(id BIGINT)");
+            statement.execute("DELETE FROM pool_items");
+        }
+
+        try (Connection connection = pooledDataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.createStatement().execute("INSERT INTO pool_items VALUES (1)");
+        }
+
+        try (Connection connection = pooledDataSource.getConnection(); Statement statement = connection.createStatement()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+            assertThat(connection.isReadOnly()).isFalse();
+            var resultSet = statement.executeQuery("SELECT count(*) FROM pool_items");
+            resultSet.next();
+            assertThat(resultSet.getInt(1)).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Transaction isolation and schema are restored when a connection is returned")
+    void isolationAndSchemaAreResetOnRelease() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder().minIdle(0).maxSize(1).build());
+        int defaultIsolation;
+        String defaultSchema;
+        try (Connection connection = pooledDataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS pool_schema");
+            defaultIsolation = connection.getTransactionIsolation();
+            defaultSchema = connection.getSchema();
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setSchema("POOL_SCHEMA");
+        }
+
+        try (Connection connection = pooledDataSource.getConnection()) {
+            assertThat(connection.getTransactionIsolation()).isEqualTo(defaultIsolation)
+                    .isNotEqualTo(Connection.TRANSACTION_SERIALIZABLE);
+            assertThat(connection.getSchema()).isEqualTo(defaultSchema).isNotEqualTo("POOL_SCHEMA");
+        }
+    }
+
+    @Test
+    @DisplayName("Statements left open by a borrower are closed when the connection is returned")
+    void openStatementsAreClosedOnRelease() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder().minIdle(0).build());
+        List<Statement> closedStatements = new ArrayList<>();
+        Statement forgottenStatement;
+
+        try (Connection connection = pooledDataSource.getConnection()) {
+            for (int i = 0; i < 100; i++) {
+                Statement statement = connection.createStatement();
+                statement.close();
+                closedStatements.add(statement);
+            }
+            forgottenStatement = connection.createStatement();
+        }
+
+        assertThat(forgottenStatement.isClosed()).isTrue();
+        assertThat(closedStatements).allMatch(this::isClosed);
+    }
+
+    @Test
+    @DisplayName("A connection that is not returned in time is reported as a possible leak once")
+    void leakedConnectionIsReported() throws Exception {
+        pooledDataSource = createPool(PoolConfig.builder()
+                .minIdle(0)
+                .leakDetectionThreshold(Duration.ofMillis(20))
+                .housekeepingPeriod(Duration.ofMillis(10))
+                .build());
+
+        try (Connection ignored = pooledDataSource.getConnection()) {
+            Thread.sleep(200);
+            assertThat(pooledDataSource.getReportedLeaks()).isEqualTo(1);
+        }
+        try (Connection ignored = pooledDataSource.getConnection()) {
+            assertThat(pooledDataSource.getReportedLeaks()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("A broken idle connection is replaced when validation on borrow is enabled")
+    void brokenConnectionIsReplacedOnBorrow() throws SQLException {
+        pooledDataSource = createPool(PoolConfig.builder()
+                .minIdle(0)
+                .validationInterval(Duration.ZERO)
+                .build());
+
+        JdbcConnection brokenConnection;
+        try (Connection connection = pooledDataSource.getConnection()) {
+            brokenConnection = connection.unwrap(JdbcConnection.class);
+        }
+        brokenConnection.close();
+
+        try (Connection connection = pooledDataSource.getConnection()) {
+            assertThat(connection.unwrap(JdbcConnection.class)).isNotSameAs(brokenConnection);
+            assertThat(connection.isValid(1)).isTrue();
+        }
+        assertThat(pooledDataSource.getTotalConnections()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Idle connections above min idle are evicted after idle timeout")
+    void idleConnectionsAreEvicted() throws Exception {
+        pooledDataSource = createPool(PoolConfig.builder()
+                .minIdle(1)
+                .idleTimeout(Duration.ofMillis(10))
+                .housekeepingPeriod(Duration.ofMillis(20))
+                .build());
+
+        Connection first = pooledDataSource.getConnection();
+        Connection second = pooledDataSource.getConnection();
+        Connection third = pooledDataSource.getConnection();
+        first.close();
+        second.close();
+        third.close();
+        Thread.sleep(200);
+
+        assertThat(pooledDataSource.getTotalConnections()).isEqualTo(1);
+    }
+
+    private boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PooledDataSource createPool(PoolConfig config) {
+        return JdbcUtil.createPooledH2DataSource(URL, "sa", "", config);
+    }
+}
@@ -0,0 +1,136 @@
+package com.bobocode.util.routing;
+
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadWriteRoutingDataSourceTest {
+    private static DataSource primary;
+    private static DataSource replica;
+
+    @BeforeAll
+    static void createDatabases() throws SQLException {
+        primary = createDatabase("routing_primary");
+        replica = createDatabase("routing_replica");
+    }
+
+    private static DataSource createDatabase(String name) throws SQLException {
+        String url = String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", name);
+        DataSource dataSource = JdbcUtil.createInMemoryH2DataSource(url, "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE db_name(name VARCHAR(255))");
+            statement.execute(String.format("INSERT INTO db_name VALUES ('%s')", name));
+        }
+        return dataSource;
+    }
+
+    @Test
+    @DisplayName("Read-only connections go to a replica, others go to the primary")
+    void routesByReadOnlyFlag() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelectionStrategy.ROUND_ROBIN, Duration.ZERO);
+
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_replica");
+        assertThat(selectDbName(routingDataSource, false)).isEqualTo("routing_primary");
+    }
+
+    @Test
+    @DisplayName("Read-only connections stay on the primary during the sticky window after a write")
+    void readsStayOnPrimaryAfterWrite() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelectionStrategy.ROUND_ROBIN, Duration.ofMinutes(1));
+
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_replica");
+        selectDbName(routingDataSource, false);
+
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_primary");
+    }
+
+    @Test
+    @DisplayName("Round robin uses replicas one after another")
+    void roundRobinAlternatesReplicas() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica, primary),
+                ReplicaSelectionStrategy.ROUND_ROBIN, Duration.ZERO);
+
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_replica");
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_primary");
+        assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_replica");
+    }
+
+    @Test
+    @DisplayName("Least busy picks a replica with fewer connections in use")
+    void leastBusyPicksIdleReplica() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica, primary),
+                ReplicaSelectionStrategy.LEAST_BUSY, Duration.ZERO);
+
+        try (Connection busyConnection = routingDataSource.getConnection()) {
+            busyConnection.setReadOnly(true);
+            busyConnection.createStatement().close();
+            assertThat(routingDataSource.getReplicaConnectionsInUse(0)).isEqualTo(1);
+
+            assertThat(selectDbName(routingDataSource, true)).isEqualTo("routing_primary");
+        }
+        assertThat(routingDataSource.getReplicaConnectionsInUse(0)).isZero();
+    }
+
+    @Test
+    @DisplayName("A replica connection switched to read-write goes to the primary")
+    void replicaConnectionSwitchedToReadWriteGoesToPrimary() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelectionStrategy.ROUND_ROBIN, Duration.ZERO);
+
+        try (Connection connection = routingDataSource.getConnection()) {
+            connection.setReadOnly(true);
+            assertThat(selectDbName(connection)).isEqualTo("routing_replica");
+
+            connection.setReadOnly(false);
+
+            assertThat(routingDataSource.getReplicaConnectionsInUse(0)).isZero();
+            assertThat(connection.isReadOnly()).isFalse();
+            assertThat(selectDbName(connection)).isEqualTo("routing_primary");
+        }
+    }
+
+    @Test
+    @DisplayName("A replica transaction cannot be switched to read-write")
+    void replicaTransactionCannotSwitchToReadWrite() throws SQLException {
+        var routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelectionStrategy.ROUND_ROBIN, Duration.ZERO);
+
+        try (Connection connection = routingDataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            assertThat(selectDbName(connection)).isEqualTo("routing_replica");
+
+            assertThatThrownBy(() -> connection.setReadOnly(false)).isInstanceOf(SQLException.class);
+            assertThat(selectDbName(connection)).isEqualTo("routing_replica");
+        }
+    }
+
+    private String selectDbName(DataSource dataSource, boolean readOnly) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(readOnly);
+            return selectDbName(connection);
+        }
+    }
+
+    private String selectDbName(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT name FROM db_name");
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.bobocode.util.script;
+
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.pool.PoolConfig;
+import com.bobocode.util.pool.PooledDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class ParallelDdlRunnerTest {
+    private static final String SCRIPT = "CREATE TABLE broker(id BIGINT PRIMARY KEY, code VARCHAR(20));\n" +
+            "CREATE TABLE sales_group(id BIGINT PRIMARY KEY, name VARCHAR(255));\n" +
+            "CREATE TABLE broker_sales_group(broker_id BIGINT REFERENCES broker, " +
+            "sales_group_id BIGINT REFERENCES sales_group(id));\n" +
+            "CREATE INDEX broker_code_idx ON broker(code);\n" +
+            "ALTER TABLE broker ADD COLUMN name VARCHAR(255);\n" +
+            "INSERT INTO broker(id, code) VALUES (1, 'B1');\n" +
+            "CREATE TABLE audit(id BIGINT PRIMARY KEY);";
+
+    private PooledDataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        dataSource = JdbcUtil.createPooledH2DataSource("jdbc:h2:mem:parallel_ddl_test;DB_CLOSE_DELAY=-1", "sa", "",
+                PoolConfig.builder().build());
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @AfterEach
+    void closeDataSource() {
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("Graph orders tables by references and defers indexes")
+    void graphOrdersTablesByReferences() throws IOException {
+        DdlDependencyGraph graph = DdlDependencyGraph.build(tokenize(SCRIPT));
+        Map<Integer, DdlDependencyGraph.Node> nodes = graph.getTableNodes().stream()
+                .collect(Collectors.toMap(node -> node.getStatement().getIndex(), Function.identity()));
+
+        assertThat(dependencyIndexes(nodes.get(1))).isEmpty();
+        assertThat(dependencyIndexes(nodes.get(2))).isEmpty();
+        assertThat(dependencyIndexes(nodes.get(3))).containsExactlyInAnyOrder(1, 2);
+        assertThat(dependencyIndexes(nodes.get(5))).containsExactly(1);
+        assertThat(dependencyIndexes(nodes.get(6))).containsExactlyInAnyOrder(1, 2, 3, 5);
+        assertThat(dependencyIndexes(nodes.get(7))).containsExactly(6);
+        assertThat(graph.getIndexNodes()).extracting(node -> node.getStatement().getIndex()).containsExactly(4);
+    }
+
+    @Test
+    @DisplayName("Graph keeps unique indexes in script order")
+    void graphKeepsUniqueIndexesInOrder() throws IOException {
+        String script = "CREATE TABLE broker(id BIGINT PRIMARY KEY, code VARCHAR(20));\n" +
+                "CREATE UNIQUE INDEX broker_code_uq ON broker(code);\n" +
+                "CREATE TABLE broker_alias(code VARCHAR(20) REFERENCES broker(code));\n" +
+                "CREATE INDEX broker_alias_code_idx ON broker_alias(code);";
+        DdlDependencyGraph graph = DdlDependencyGraph.build(tokenize(script));
+        Map<Integer, DdlDependencyGraph.Node> nodes = graph.getTableNodes().stream()
+                .collect(Collectors.toMap(node -> node.getStatement().getIndex(), Function.identity()));
+
+        assertThat(dependencyIndexes(nodes.get(2))).containsExactly(1);
+        assertThat(dependencyIndexes(nodes.get(3))).containsExactly(2);
+        assertThat(graph.getIndexNodes()).extracting(node -> node.getStatement().getIndex()).containsExactly(4);
+    }
+
+    @Test
+    @DisplayName("A foreign key to uniquely indexed columns waits for the index")
+    void foreignKeyWaitsForUniqueIndex() throws SQLException {
+        String script = "CREATE TABLE broker(id BIGINT PRIMARY KEY, code VARCHAR(20));\n" +
+                "CREATE UNIQUE INDEX broker_code_uq ON broker(code);\n" +
+                "CREATE TABLE broker_alias(code VARCHAR(20) REFERENCES broker(code));";
+
+        List<Integer> executionOrder = new ArrayList<>();
+
+        ScriptReport report = new ParallelDdlRunner(dataSource, 4).run(new StringReader(script),
+                result -> executionOrder.add(result.getStatement().getIndex()));
+
+        assertThat(report.isSuccessful()).isTrue();
+        assertThat(executionOrder).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Runner executes a script concurrently respecting dependencies")
+    void runnerExecutesScript() throws SQLException {
+        List<Integer> executionOrder = new ArrayList<>();
+
+        ScriptReport report = new ParallelDdlRunner(dataSource, 4).run(new StringReader(SCRIPT),
+                result -> executionOrder.add(result.getStatement().getIndex()));
+
+        assertThat(report.isSuccessful()).isTrue();
+        assertThat(report.getExecutedStatements()).isEqualTo(7);
+        assertThat(executionOrder.indexOf(3)).isGreaterThan(executionOrder.indexOf(1))
+                .isGreaterThan(executionOrder.indexOf(2));
+        assertThat(executionOrder.get(6)).isEqualTo(4);
+        assertThat(countRows("broker")).isEqualTo(1);
+        assertThat(countRows("audit")).isZero();
+    }
+
+    @Test
+    @DisplayName("Runner stops scheduling statements after a failure")
+    void runnerStopsOnFailure() {
+        String script = "CREATE TABLE broker(id BIGINT PRIMARY KEY);\n" +
+                "CREATE TABLE sales_group(id BIGINT PRIMARY KEY, broker_id BIGINT REFERENCES missing_table);\n" +
+                "CREATE TABLE broker_sales_group(broker_id BIGINT REFERENCES broker, " +
+                "sales_group_id BIGINT REFERENCES sales_group);";
+
+        SqlScriptException exception = catchThrowableOfType(
+                () -> new ParallelDdlRunner(dataSource, 2).run(new StringReader(script)), SqlScriptException.class);
+
+        assertThat(exception.getReport().getFailures()).extracting(result -> result.getStatement().getIndex())
+                .containsExactly(2);
+        assertThat(exception.getReport().getExecutedStatements()).isEqualTo(2);
+    }
+
+    private static List<Integer> dependencyIndexes(DdlDependencyGraph.Node node) {
+        return node.getDependencies().stream()
+                .map(dependency -> dependency.getStatement().getIndex())
+                .collect(Collectors.toList());
+    }
+
+    private static List<ScriptStatement> tokenize(String script) throws IOException {
+        SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(new StringReader(script));
+        List<ScriptStatement> statements = new ArrayList<>();
+        ScriptStatement statement;
+        while ((statement = tokenizer.nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private int countRows(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + table);
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bobocode.util.script;
+
+import com.bobocode.util.JdbcUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class SqlScriptRunnerTest {
+    private DataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        dataSource = JdbcUtil.createInMemoryH2DataSource("jdbc:h2:mem:script_runner_test;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @DisplayName("Tokenizer splits statements ignoring separators in comments, strings and dollar quotes")
+    void tokenizerSplitsStatements() throws IOException {
+        String script = "-- header comment; with a semicolon\n" +
+                "CREATE TABLE notes(text VARCHAR(255)); /* block ; comment /* nested; */ */\n" +
+                "INSERT INTO notes VALUES ('semi;colon''s');\n" +
+                "CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql;\n" +
+                "SELECT $1 FROM notes;;\n" +
+                "SELECT 1";
+
+        List<ScriptStatement> statements = tokenize(script);
+
+        assertThat(statements).extracting(ScriptStatement::getSql).containsExactly(
+                "CREATE TABLE notes(text VARCHAR(255))",
+                "INSERT INTO notes VALUES ('semi;colon''s')",
+                "CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql",
+                "SELECT $1 FROM notes",
+                "SELECT 1");
+        assertThat(statements).extracting(ScriptStatement::getLineNumber).containsExactly(2, 3, 4, 5, 6);
+    }
+
+    @Test
+    @DisplayName("Runner executes all statements in batches and reports each of them")
+    void runnerExecutesStatementsInBatches() throws SQLException {
+        String script = "CREATE TABLE notes(id INT PRIMARY KEY, text VARCHAR(255));\n" +
+                "INSERT INTO notes VALUES (1, 'a;b');\n" +
+                "INSERT INTO notes VALUES (2, 'c');\n" +
+                "INSERT INTO notes VALUES (3, 'd');";
+        List<StatementResult> results = new ArrayList<>();
+
+        ScriptReport report = new SqlScriptRunner(dataSource, 2, false).run(new StringReader(script), results::add);
+
+        assertThat(report.isSuccessful()).isTrue();
+        assertThat(report.getExecutedStatements()).isEqualTo(4);
+        assertThat(report.getBatches()).isEqualTo(2);
+        assertThat(results).hasSize(4).noneMatch(StatementResult::isFailed);
+        assertThat(countNotes()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Runner stops at the first failed statement and tells which one failed")
+    void runnerStopsOnFailure() {
+        String script = "CREATE TABLE notes(id INT PRIMARY KEY);\n" +
+                "INSERT INTO notes VALUES (1);\n" +
+                "INSERT INTO missing_table VALUES (2);\n" +
+                "INSERT INTO notes VALUES (3);";
+
+        SqlScriptException exception = catchThrowableOfType(
+                () -> new SqlScriptRunner(dataSource).run(new StringReader(script)), SqlScriptException.class);
+
+        List<StatementResult> failures = exception.getReport().getFailures();
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0).getStatement().getIndex()).isEqualTo(3);
+        assertThat(failures.get(0).getStatement().getLineNumber()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Runner collects all failures when continue on error is enabled")
+    void runnerContinuesOnError() throws SQLException {
+        String script = "CREATE TABLE notes(id INT PRIMARY KEY);\n" +
+                "INSERT INTO notes VALUES (1);\n" +
+                "INSERT INTO notes VALUES (1);\n" +
+                "INSERT INTO notes VALUES (2);";
+
+        ScriptReport report = new SqlScriptRunner(dataSource, 10, true).run(new StringReader(script));
+
+        assertThat(report.getFailures()).extracting(result -> result.getStatement().getIndex()).containsExactly(3);
+        assertThat(countNotes()).isEqualTo(2);
+    }
+
+    private List<ScriptStatement> tokenize(String script) throws IOException {
+        SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(new StringReader(script));
+        List<ScriptStatement> statements = new ArrayList<>();
+        ScriptStatement statement;
+        while ((statement = tokenizer.nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private int countNotes() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM notes");
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.bobocode.util.statement;
+
+import com.bobocode.util.JdbcUtil;
+import com.bobocode.util.pool.PoolConfig;
+import com.bobocode.util.pool.PooledDataSource;
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatementCachingDataSourceTest {
+    private static final String URL = "jdbc:h2:mem:statement_cache_test;DB_CLOSE_DELAY=-1";
+    private static final String SELECT_BY_ID_SQL = "SELECT name FROM items WHERE id = ?";
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        try (Connection connection = JdbcUtil.createInMemoryH2DataSource(URL, "sa", "").getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items(id BIGINT PRIMARY KEY, name VARCHAR(255))");
+            statement.execute("INSERT INTO items VALUES (1, 'first'), (2, 'second')");
+            statement.execute("CREATE TABLE batch_items(id BIGINT PRIMARY KEY)");
+        }
+    }
+
+    @Test
+    @DisplayName("A closed statement is reused for the same SQL")
+    void statementIsReused() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 10);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(selectName(connection, 1L)).isEqualTo("first");
+            assertThat(selectName(connection, 2L)).isEqualTo("second");
+        }
+
+        StatementCacheStats stats = dataSource.getStats();
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A statement that is still open is not shared")
+    void openStatementIsNotShared() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 10);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement first = connection.prepareStatement(SELECT_BY_ID_SQL);
+             PreparedStatement second = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+            assertThat(first.unwrap(JdbcPreparedStatement.class)).isNotSameAs(second.unwrap(JdbcPreparedStatement.class));
+        }
+        assertThat(dataSource.getStats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("The least recently used statement is evicted when the cache is full")
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 1);
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement(SELECT_BY_ID_SQL).close();
+            connection.prepareStatement("SELECT count(*) FROM items").close();
+            connection.prepareStatement(SELECT_BY_ID_SQL).close();
+        }
+
+        StatementCacheStats stats = dataSource.getStats();
+        assertThat(stats.getMisses()).isEqualTo(3);
+        assertThat(stats.getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Pooled connections keep their statement cache between borrows")
+    void pooledConnectionsKeepCache() throws SQLException {
+        PoolConfig poolConfig = PoolConfig.builder().minIdle(0).maxSize(1).statementCacheSize(10).build();
+        try (PooledDataSource pool = JdbcUtil.createPooledH2DataSource(URL, "sa", "", poolConfig)) {
+            for (long id = 1; id <= 2; id++) {
+                try (Connection connection = pool.getConnection()) {
+                    PreparedStatement notClosedStatement = connection.prepareStatement(SELECT_BY_ID_SQL);
+                    notClosedStatement.setLong(1, id);
+                    notClosedStatement.executeQuery();
+                }
+            }
+
+            StatementCacheStats stats = pool.unwrap(StatementCachingDataSource.class).getStats();
+            assertThat(stats.getHits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("A pending batch is not replayed by the next borrower")
+    void pendingBatchIsCleared() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 10);
+        String insertSql = "INSERT INTO batch_items(id) VALUES (?)";
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement abandoned = connection.prepareStatement(insertSql)) {
+                abandoned.setLong(1, 1L);
+                abandoned.addBatch();
+            }
+            try (PreparedStatement reused = connection.prepareStatement(insertSql)) {
+                reused.setLong(1, 2L);
+                reused.addBatch();
+                assertThat(reused.executeBatch()).containsExactly(1);
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id FROM batch_items")) {
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getLong(1)).isEqualTo(2L);
+                assertThat(resultSet.next()).isFalse();
+            }
+        }
+        assertThat(dataSource.getStats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Fetch size, max rows and query timeout are reset for the next borrower")
+    void statementPropertiesAreReset() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 10);
+
+        try (Connection connection = dataSource.getConnection()) {
+            int fetchSize;
+            try (PreparedStatement first = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+                fetchSize = first.getFetchSize();
+                first.setFetchSize(fetchSize + 50);
+                first.setMaxRows(1);
+                first.setQueryTimeout(30);
+            }
+            try (PreparedStatement second = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+                assertThat(second.getFetchSize()).isEqualTo(fetchSize);
+                assertThat(second.getMaxRows()).isZero();
+                assertThat(second.getQueryTimeout()).isZero();
+            }
+        }
+        assertThat(dataSource.getStats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A statement closed physically or made non-cacheable is prepared again")
+    void closedAndNonCacheableStatementsAreNotReused() throws SQLException {
+        var dataSource = new StatementCachingDataSource(JdbcUtil.createInMemoryH2DataSource(URL, "sa", ""), 10);
+
+        try (Connection connection = dataSource.getConnection()) {
+            JdbcPreparedStatement closedByDriver;
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+                closedByDriver = statement.unwrap(JdbcPreparedStatement.class);
+            }
+            closedByDriver.close();
+            assertThat(selectName(connection, 1L)).isEqualTo("first");
+
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+                statement.closeOnCompletion();
+            }
+            assertThat(selectName(connection, 2L)).isEqualTo("second");
+        }
+
+        StatementCacheStats stats = dataSource.getStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A statement that fails to reset is closed and not handed out again")
+    void statementThatFailsToResetIsDiscarded() throws SQLException {
+        PreparedStatement brokenStatement = mock(PreparedStatement.class);
+        doThrow(new SQLException("Reset failed")).when(brokenStatement).clearParameters();
+        PreparedStatement freshStatement = mock(PreparedStatement.class);
+        Connection physicalConnection = mock(Connection.class);
+        when(physicalConnection.prepareStatement(SELECT_BY_ID_SQL)).thenReturn(brokenStatement, freshStatement);
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenReturn(physicalConnection);
+        var dataSource = new StatementCachingDataSource(targetDataSource, 10);
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_SQL);
+            assertThatThrownBy(statement::close).hasMessage("Reset failed");
+
+            try (PreparedStatement next = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+                assertThat(next.unwrap(PreparedStatement.class)).isNotSameAs(brokenStatement);
+            }
+        }
+        verify(brokenStatement).close();
+        assertThat(dataSource.getStats().getMisses()).isEqualTo(2);
+    }
+
+    private String selectName(Connection connection, Long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+            statement.setLong(1, id);
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
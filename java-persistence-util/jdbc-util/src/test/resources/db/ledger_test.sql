@@ -0,0 +1,9 @@
+CREATE TABLE ledger_items
+(
+    id   BIGINT       NOT NULL,
+    name VARCHAR(255) NOT NULL,
+
+    CONSTRAINT ledger_items_pk PRIMARY KEY (id)
+);
+
+INSERT INTO ledger_items (id, name) VALUES (1, 'first');